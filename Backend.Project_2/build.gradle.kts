@@ -3,6 +3,7 @@ plugins {
     id("org.springframework.boot") version "3.4.4"
     id("io.spring.dependency-management") version "1.1.7"
     id("io.freefair.lombok") version "8.4"
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "ru"
@@ -36,6 +37,22 @@ dependencies {
     implementation("io.jsonwebtoken:jjwt-jackson:0.11.5")
 
     implementation ("org.springdoc:springdoc-openapi-starter-webmvc-ui:2.6.0")
+
+    implementation("org.springframework.boot:spring-boot-starter-actuator")
+    implementation("com.github.ben-manes.caffeine:caffeine")
+
+    testImplementation("org.springframework.boot:spring-boot-starter-test")
+    testImplementation("io.zonky.test:embedded-postgres:2.0.7")
+
+    jmh("io.zonky.test:embedded-postgres:2.0.7")
+}
+
+// Бенчмарки: ./gradlew jmh, результаты в build/results/jmh/results.json
+jmh {
+    jmhVersion = "1.37"
+    resultFormat = "JSON"
+    resultsFile = layout.buildDirectory.file("results/jmh/results.json")
+    includes = listOf(providers.gradleProperty("jmhIncludes").getOrElse(".*"))
 }
 
 tasks.withType<Test> {
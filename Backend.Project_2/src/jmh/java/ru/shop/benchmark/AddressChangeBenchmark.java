@@ -0,0 +1,106 @@
+package ru.shop.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.shop.dao.model.ClientEntity;
+import ru.shop.dao.repository.ClientRepository;
+import ru.shop.domain.model.AddressDto;
+import ru.shop.domain.service.address.AddressService;
+import ru.shop.domain.service.client.ClientService;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Замена адреса клиента: блокировка строки клиента и один оператор WITH ... INSERT/UPDATE/DELETE
+ * против прежнего чтения клиента, вставки адреса, удаления старого и сохранения клиента
+ * отдельными запросами без общей транзакции. При clients = 16 потоки меняют адреса одних клиентов,
+ * при 10000 почти не пересекаются. Прежний путь к тому же оставляет лишние адреса при гонке.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(4)
+@Fork(1)
+public class AddressChangeBenchmark {
+
+    @Param({"16", "10000"})
+    private int clients;
+
+    private EmbeddedShop shop;
+    private ConfigurableApplicationContext context;
+    private ClientService clientService;
+    private AddressService addressService;
+    private ClientRepository repository;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        shop = new EmbeddedShop();
+        context = shop.start();
+        clientService = context.getBean(ClientService.class);
+        addressService = context.getBean(AddressService.class);
+        repository = context.getBean(ClientRepository.class);
+        for (int i = 0; i < clients; i++) {
+            addressService.add(BenchmarkData.address(i));
+            clientService.add(BenchmarkData.client(i));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        shop.close();
+    }
+
+    @Benchmark
+    public boolean lockedStatement() {
+        return clientService.changeAddress(randomId(), newAddress());
+    }
+
+    // Так changeAddress менял адрес до блокировки строки и одного оператора
+    @Benchmark
+    public boolean loadModifySave() {
+        AddressDto address = newAddress();
+        Optional<ClientEntity> client = repository.findById(randomId());
+        if (client.isEmpty() || !addressService.add(address)) {
+            return false;
+        }
+        ClientEntity entity = client.get();
+        addressService.deleteById(entity.getAddressId());
+        entity.setAddressId(address.getId());
+        repository.save(entity);
+        return true;
+    }
+
+    private UUID randomId() {
+        return BenchmarkData.client(ThreadLocalRandom.current().nextInt(clients)).getId();
+    }
+
+    private static AddressDto newAddress() {
+        AddressDto address = new AddressDto();
+        address.setId(UUID.randomUUID());
+        address.setCountry("Россия");
+        address.setCity("Санкт-Петербург");
+        address.setStreet("Невский проспект");
+        return address;
+    }
+
+}
@@ -0,0 +1,83 @@
+package ru.shop.benchmark;
+
+import ru.shop.domain.model.AddressDto;
+import ru.shop.domain.model.ClientDto;
+import ru.shop.domain.model.ProductDto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Детерминированные тестовые данные: одинаковые между запусками, чтобы результаты были сравнимы.
+ */
+final class BenchmarkData {
+
+    private static final String[] CATEGORIES = {"Пылесосы", "Холодильники", "Телевизоры", "Смартфоны"};
+    private static final String[] BRANDS = {"Dyson", "Bosch", "Samsung", "LG", "Xiaomi", "Philips", "Атлант"};
+    private static final String[] MODELS = {"V15s Submarine", "Serie 6", "Galaxy S24", "OLED evo", "Redmi Note",
+            "Series 5000", "ХМ 4625", "Пылесос беспроводной", "Холодильник двухкамерный"};
+    private static final String[] NAMES = {"Иван", "Пётр", "Алексей", "Мария", "Анна", "Елена", "Сергей",
+            "Ольга", "Дмитрий", "Татьяна", "Ivan", "Anna"};
+    private static final String[] SURNAMES = {"Иванов", "Петров", "Сидоров", "Смирнов", "Кузнецов", "Попов",
+            "Соколов", "Лебедев", "Козлов", "Новиков", "Морозов", "Волков", "Фёдоров", "Dulin", "Smith"};
+
+    private BenchmarkData() {
+    }
+
+    static ProductDto product(final int index) {
+        ProductDto product = new ProductDto();
+        product.setId(new UUID(0x5E_ED_0000_0000_0000L, index));
+        product.setName(BRANDS[index % BRANDS.length] + " " + MODELS[index / BRANDS.length % MODELS.length]
+                + " " + index);
+        product.setCategory(CATEGORIES[index % CATEGORIES.length]);
+        product.setPrice(BigDecimal.valueOf(1_000_00L + index, 2));
+        product.setAvailableStock(Integer.MAX_VALUE / 2);  // остатка хватает на любое число списаний
+        product.setLastUpdateDate(LocalDate.of(2025, 7, 3));
+        product.setSupplierId(new UUID(0x5E_ED_0001_0000_0000L, index % 100));
+        product.setImageId(new UUID(0x5E_ED_0002_0000_0000L, index));
+        return product;
+    }
+
+    static ClientDto client(final int index) {
+        ClientDto client = new ClientDto();
+        client.setId(new UUID(0x5E_ED_0003_0000_0000L, index));
+        // Фамилии уникальны суффиксом номера, чтобы точный поиск находил одного-двух клиентов
+        client.setName(NAMES[index % NAMES.length]);
+        client.setSurname(SURNAMES[index / NAMES.length % SURNAMES.length] + "-" + index / 100);
+        client.setBirthday(LocalDate.of(1999, 12, 31));
+        client.setGender(index % 2 == 0 ? "male" : "female");
+        client.setRegistrationDate(LocalDate.of(2025, 7, 3));
+        client.setAddressId(new UUID(0x5E_ED_0004_0000_0000L, index));
+        return client;
+    }
+
+    // Адрес клиента client(index)
+    static AddressDto address(final int index) {
+        AddressDto address = new AddressDto();
+        address.setId(new UUID(0x5E_ED_0004_0000_0000L, index));
+        address.setCountry("Россия");
+        address.setCity("Москва");
+        address.setStreet("Тверская, " + index);
+        return address;
+    }
+
+    static List<ProductDto> products(final int size) {
+        List<ProductDto> products = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            products.add(product(i));
+        }
+        return products;
+    }
+
+    static List<ClientDto> clients(final int size) {
+        List<ClientDto> clients = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            clients.add(client(i));
+        }
+        return clients;
+    }
+
+}
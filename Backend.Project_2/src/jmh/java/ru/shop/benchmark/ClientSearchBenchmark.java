@@ -0,0 +1,109 @@
+package ru.shop.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.shop.domain.model.ClientDto;
+import ru.shop.domain.model.CursorPageDto;
+import ru.shop.domain.service.client.ClientImportService;
+import ru.shop.domain.service.client.ClientService;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Поиск и постраничный обход клиентов на заполненной таблице client в PostgreSQL, запущенном в процессе.
+ * Клиенты загружаются через массовую регистрацию один раз на набор параметров.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ClientSearchBenchmark {
+
+    @Param({"1000000"})
+    private int clients;
+
+    private EmbeddedShop shop;
+    private ConfigurableApplicationContext context;
+    private ClientService service;
+    private List<String> cursors;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        shop = new EmbeddedShop();
+        context = shop.start();
+        ObjectMapper objectMapper = context.getBean(ObjectMapper.class);
+        Path ndjson = Files.createTempFile("clients", ".ndjson");
+        try (BufferedWriter writer = Files.newBufferedWriter(ndjson, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < clients; i++) {
+                writer.write(objectMapper.writeValueAsString(BenchmarkData.client(i)));
+                writer.newLine();
+            }
+        }
+        try (InputStream content = Files.newInputStream(ndjson)) {
+            context.getBean(ClientImportService.class).importClients(content);
+        } finally {
+            Files.delete(ndjson);
+        }
+        context.getBean(JdbcTemplate.class).execute("ANALYZE client");  // статистика для планировщика
+        service = context.getBean(ClientService.class);
+        // Курсоры непрозрачны, поэтому страницы на разной глубине берутся из одного обхода таблицы
+        cursors = new ArrayList<>();
+        for (String next = service.getPage(null, 500).getNext(); next != null;
+             next = service.getPage(next, 500).getNext()) {
+            cursors.add(next);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        shop.close();
+    }
+
+    @Benchmark
+    public List<ClientDto> exactName() {
+        ClientDto client = BenchmarkData.client(ThreadLocalRandom.current().nextInt(clients));
+        return service.getByNameAndSurname(client.getName(), client.getSurname());
+    }
+
+    @Benchmark
+    public List<ClientDto> substring() {
+        return service.search("смирнов-42", 0, 20);
+    }
+
+    @Benchmark
+    public List<ClientDto> typo() {
+        return service.search("смирноф-4217 ольга", 0, 20);
+    }
+
+    @Benchmark
+    public CursorPageDto<ClientDto> deepPage() {
+        return service.getPage(cursors.get(ThreadLocalRandom.current().nextInt(cursors.size())), 50);
+    }
+
+}
@@ -0,0 +1,55 @@
+package ru.shop.benchmark;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.shop.Application;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * PostgreSQL в процессе бенчмарка и контекст приложения без веб-сервера поверх него.
+ * Данные хранятся во временных каталогах и удаляются вместе с базой данных.
+ */
+final class EmbeddedShop implements AutoCloseable {
+
+    private final EmbeddedPostgres postgres;
+    private final Path dataDirectory;
+
+    EmbeddedShop() throws IOException {
+        this.postgres = EmbeddedPostgres.start();
+        this.dataDirectory = Files.createTempDirectory("shop-benchmark");
+    }
+
+    /**
+     * Запуск контекста приложения.
+     * Аргументы командной строки переопределяют application.properties, в отличие от properties(...).
+     *
+     * @param args Дополнительные аргументы вида --имя=значение.
+     * @return Запущенный контекст.
+     */
+    ConfigurableApplicationContext start(final String... args) {
+        List<String> arguments = new ArrayList<>(List.of(
+                "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres")
+                        + "&reWriteBatchedInserts=true",
+                "--spring.datasource.username=postgres",
+                "--spring.datasource.password=",
+                "--shop.products.hot.journal=" + dataDirectory.resolve("stock-journal"),
+                "--shop.images.storage.root=" + dataDirectory.resolve("images")));
+        arguments.addAll(List.of(args));
+        return new SpringApplicationBuilder(Application.class)
+                .web(WebApplicationType.NONE)
+                .run(arguments.toArray(String[]::new));
+    }
+
+    @Override
+    public void close() throws IOException {
+        postgres.close();
+    }
+
+}
@@ -0,0 +1,69 @@
+package ru.shop.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.shop.dao.model.ClientEntity;
+import ru.shop.dao.model.ProductEntity;
+import ru.shop.domain.model.ClientDto;
+import ru.shop.domain.model.ProductDto;
+import ru.shop.mapper.ClientMapper;
+import ru.shop.mapper.ProductMapper;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Преобразование сущность <-> DTO для товаров и клиентов, по одному объекту за вызов.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class MapperBenchmark {
+
+    private final ProductMapper productMapper = new ProductMapper();
+    private final ClientMapper clientMapper = new ClientMapper();
+
+    private ProductDto productDto;
+    private ProductEntity productEntity;
+    private ClientDto clientDto;
+    private ClientEntity clientEntity;
+
+    @Setup
+    public void setUp() {
+        productDto = BenchmarkData.product(1);
+        productEntity = productMapper.toEntity(productDto, new ProductEntity());
+        clientDto = BenchmarkData.client(1);
+        clientEntity = clientMapper.toEntity(clientDto, new ClientEntity());
+    }
+
+    @Benchmark
+    public ProductDto productToDto() {
+        return productMapper.toDto(productEntity, new ProductDto());
+    }
+
+    @Benchmark
+    public ProductEntity productToEntity() {
+        return productMapper.toEntity(productDto, new ProductEntity());
+    }
+
+    @Benchmark
+    public ClientDto clientToDto() {
+        return clientMapper.toDto(clientEntity, new ClientDto());
+    }
+
+    @Benchmark
+    public ClientEntity clientToEntity() {
+        return clientMapper.toEntity(clientDto, new ClientEntity());
+    }
+
+}
@@ -0,0 +1,145 @@
+package ru.shop.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.shop.domain.model.ImportFormat;
+import ru.shop.domain.model.ProductDto;
+import ru.shop.domain.service.product.ProductImportService;
+import ru.shop.domain.service.product.search.ProductSearchIndex;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Поиск по индексу названий товаров в памяти против базовой линии: тех же товаров в PostgreSQL,
+ * запущенном в процессе, с поиском каждого слова подстрокой через LIKE.
+ * Бенчмарки like* загружают товары в базу данных один раз на набор параметров.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ProductSearchBenchmark {
+
+    @Param({"10000", "1000000"})
+    private int products;
+
+    private ProductSearchIndex index;
+
+    @Setup
+    public void setUp() {
+        index = new ProductSearchIndex(null, null);  // индекс заполняется напрямую, build() не вызывается
+        for (int i = 0; i < products; i++) {
+            ProductDto product = BenchmarkData.product(i);
+            index.put(product.getId(), product.getName());
+        }
+    }
+
+    @Benchmark
+    public List<UUID> singleWord() {
+        return index.search("dyson", 0, 20);
+    }
+
+    @Benchmark
+    public List<UUID> prefixes() {
+        return index.search("galax s2", 0, 20);
+    }
+
+    @Benchmark
+    public List<UUID> cyrillicPrefixes() {
+        return index.search("пылес беспр", 0, 20);
+    }
+
+    @Benchmark
+    @Fork(1)
+    public List<UUID> likeSingleWord(final Database database) {
+        return database.search("dyson");
+    }
+
+    @Benchmark
+    @Fork(1)
+    public List<UUID> likePrefixes(final Database database) {
+        return database.search("galax", "s2");
+    }
+
+    @Benchmark
+    @Fork(1)
+    public List<UUID> likeCyrillicPrefixes(final Database database) {
+        return database.search("пылес", "беспр");
+    }
+
+    /**
+     * Таблица product с теми же товарами, что и индекс в памяти.
+     */
+    @State(Scope.Benchmark)
+    public static class Database {
+
+        private EmbeddedShop shop;
+        private ConfigurableApplicationContext context;
+        private JdbcTemplate jdbcTemplate;
+
+        @Setup(Level.Trial)
+        public void setUp(final ProductSearchBenchmark benchmark) throws IOException {
+            shop = new EmbeddedShop();
+            context = shop.start();
+            ObjectMapper objectMapper = context.getBean(ObjectMapper.class);
+            Path ndjson = Files.createTempFile("products", ".ndjson");
+            try (BufferedWriter writer = Files.newBufferedWriter(ndjson, StandardCharsets.UTF_8)) {
+                for (int i = 0; i < benchmark.products; i++) {
+                    writer.write(objectMapper.writeValueAsString(BenchmarkData.product(i)));
+                    writer.newLine();
+                }
+            }
+            try (InputStream content = Files.newInputStream(ndjson)) {
+                context.getBean(ProductImportService.class).importProducts(content, ImportFormat.NDJSON);
+            } finally {
+                Files.delete(ndjson);
+            }
+            jdbcTemplate = context.getBean(JdbcTemplate.class);
+            jdbcTemplate.execute("ANALYZE product");  // статистика для планировщика
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            context.close();
+            shop.close();
+        }
+
+        // Каждое слово должно встречаться в названии; '%слово%' не использует B-tree, таблица читается целиком
+        List<UUID> search(final String... words) {
+            String condition = Arrays.stream(words)
+                    .map(word -> "lower(name) LIKE ?")
+                    .collect(Collectors.joining(" AND "));
+            Object[] patterns = Arrays.stream(words).map(word -> "%" + word + "%").toArray();
+            return jdbcTemplate.queryForList("SELECT id FROM product WHERE " + condition + " ORDER BY id LIMIT 20",
+                    UUID.class, patterns);
+        }
+
+    }
+
+}
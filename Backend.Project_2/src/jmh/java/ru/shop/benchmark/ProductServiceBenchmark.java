@@ -0,0 +1,105 @@
+package ru.shop.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.shop.domain.model.ProductDto;
+import ru.shop.domain.service.product.ProductService;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Чтение и списание остатка товара через ProductServiceImpl с PostgreSQL, запущенным в процессе бенчмарка.
+ * cacheSize = 0 отключает кэш товаров, и getById каждый раз читает базу данных.
+ * reduceContended списывает несколько популярных товаров, как при распродаже; с hot = true
+ * эти товары объявлены горячими и списываются в памяти вместо блокировки строки.
+ * reduceContended выполняется в несколько потоков (@Threads), иначе конкуренции за строки нет.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ProductServiceBenchmark {
+
+    private static final int CONTENDED_PRODUCTS = 16;
+
+    @Param({"10000"})
+    private int products;
+
+    @Param({"10000", "0"})
+    private long cacheSize;
+
+    @Param({"false", "true"})
+    private boolean hot;
+
+    private EmbeddedShop shop;
+    private ConfigurableApplicationContext context;
+    private ProductService service;
+    private UUID[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        shop = new EmbeddedShop();
+        ids = new UUID[products];
+        // Горячие товары читаются из базы данных при запуске, поэтому товары добавляются
+        // отдельным контекстом, а измеряемый запускается без пересоздания схемы
+        try (ConfigurableApplicationContext seed = shop.start()) {
+            ProductService seedService = seed.getBean(ProductService.class);
+            for (int i = 0; i < products; i++) {
+                ProductDto product = BenchmarkData.product(i);
+                seedService.add(product);
+                ids[i] = product.getId();
+            }
+        }
+        String hotIds = hot
+                ? Arrays.stream(ids, 0, CONTENDED_PRODUCTS).map(UUID::toString).collect(Collectors.joining(","))
+                : "";
+        context = shop.start("--spring.jpa.hibernate.ddl-auto=none",
+                "--shop.products.cache.max-size=" + cacheSize,
+                "--shop.products.hot.ids=" + hotIds);
+        service = context.getBean(ProductService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        shop.close();
+    }
+
+    @Benchmark
+    public ProductDto getById() {
+        return service.getById(ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+    }
+
+    @Benchmark
+    public ProductDto reduceByAmount() {
+        return service.reduceByAmount(
+                ids[ThreadLocalRandom.current().nextInt(CONTENDED_PRODUCTS, ids.length)], 1);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public ProductDto reduceContended() {
+        return service.reduceByAmount(ids[ThreadLocalRandom.current().nextInt(CONTENDED_PRODUCTS)], 1);
+    }
+
+}
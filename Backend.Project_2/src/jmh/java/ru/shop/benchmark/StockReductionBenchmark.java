@@ -0,0 +1,102 @@
+package ru.shop.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.shop.dao.model.ProductEntity;
+import ru.shop.dao.repository.ProductRepository;
+import ru.shop.domain.model.ProductDto;
+import ru.shop.domain.service.product.ProductService;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Списание остатка одним условным UPDATE ... RETURNING против прежнего чтения строки,
+ * проверки и сохранения сущности через save. Потоки списывают products товаров:
+ * при products = 16 они конкурируют за одни строки, при 10000 почти не пересекаются.
+ * Прежний путь к тому же теряет параллельные списания: строка не блокируется между чтением и записью.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(4)
+@Fork(1)
+public class StockReductionBenchmark {
+
+    @Param({"16", "10000"})
+    private int products;
+
+    private EmbeddedShop shop;
+    private ConfigurableApplicationContext context;
+    private ProductRepository repository;
+    private TransactionTemplate transaction;
+    private UUID[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        shop = new EmbeddedShop();
+        context = shop.start("--shop.products.cache.max-size=0");
+        ProductService service = context.getBean(ProductService.class);
+        ids = new UUID[products];
+        for (int i = 0; i < products; i++) {
+            ProductDto product = BenchmarkData.product(i);
+            service.add(product);
+            ids[i] = product.getId();
+        }
+        repository = context.getBean(ProductRepository.class);
+        transaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        shop.close();
+    }
+
+    @Benchmark
+    public Optional<ProductEntity> conditionalUpdate() {
+        return repository.reduceAvailableStock(randomId(), 1);
+    }
+
+    // Так reduceByAmount списывал остаток до однооператорного UPDATE
+    @Benchmark
+    public ProductEntity readModifyWrite() {
+        UUID id = randomId();
+        return transaction.execute(status -> {
+            if (!repository.existsById(id)) {
+                return null;
+            }
+            ProductEntity product = repository.findById(id).orElseThrow();
+            if (product.getAvailableStock() < 1) {
+                return null;
+            }
+            product.setAvailableStock(product.getAvailableStock() - 1);
+            return repository.save(product);
+        });
+    }
+
+    private UUID randomId() {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+
+}
@@ -8,15 +8,20 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import ru.shop.domain.model.AddressDto;
 import ru.shop.domain.model.ClientDto;
-import ru.shop.domain.service.address.AddressService;
+import ru.shop.domain.model.CursorPageDto;
+import ru.shop.domain.model.ImportReportDto;
+import ru.shop.domain.service.client.ClientImportService;
 import ru.shop.domain.service.client.ClientService;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.util.List;
 import java.util.Map;
@@ -26,13 +31,18 @@ import java.util.UUID;
 @RequestMapping("/api/v1")
 public class ClientController {
 
+    private static final String EXPAND_ADDRESS = "address";
+
     private final ClientService clientService;
-    private final AddressService addressService;
+    private final ClientImportService clientImportService;
+    private final int defaultPageSize;
 
     @Autowired
-    public ClientController(ClientService clientService, AddressService addressService) {
+    public ClientController(ClientService clientService, ClientImportService clientImportService,
+                            @Value("${shop.clients.page.default-limit:50}") int defaultPageSize) {
         this.clientService = clientService;
-        this.addressService = addressService;
+        this.clientImportService = clientImportService;
+        this.defaultPageSize = defaultPageSize;
     }
 
     @PostMapping("/clients")
@@ -67,6 +77,41 @@ public class ClientController {
         }
     }
 
+    @PostMapping(value = "/clients/import", consumes = "application/x-ndjson")
+    @Operation(
+            summary = "Массовая регистрация клиентов",
+            description = "Регистрирует клиентов из NDJSON: по одному JSON-объекту клиента в строке. " +
+                    "Новый адрес клиента можно передать в поле address, тогда addressId можно не указывать. " +
+                    "Тело читается потоком, клиенты сохраняются пакетами. Строки с ошибками пропускаются, " +
+                    "остальные сохраняются; номера отклоненных строк и причины возвращаются в отчете."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Отчет о загрузке",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = ImportReportDto.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Тело запроса не удалось прочитать",
+                    content = @Content(
+                            mediaType = "application/json",
+                            examples = @ExampleObject(value = "{\"error\": \"Не удалось прочитать тело запроса\"}")
+                    )
+            )
+    })
+    public ResponseEntity<?> importClients(InputStream body) {
+        try {
+            return ResponseEntity.ok(clientImportService.importClients(body));  // 200 OK
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", "Не удалось прочитать тело запроса"));  // 400 Bad Request
+        }
+    }
+
     @DeleteMapping("/clients")
     @Operation(
             summary = "Удаление клиента по ID",
@@ -97,7 +142,10 @@ public class ClientController {
     @GetMapping("/clients/search")
     @Operation(
             summary = "Поиск клиентов по имени и фамилии",
-            description = "Возвращает список клиентов, соответствующих заданным имени и фамилии. " +
+            description = "С параметрами firstName и lastName возвращает клиентов с такими именем и фамилией " +
+                    "без учета регистра и различия е/ё. С параметром q ищет клиентов, у которых q входит " +
+                    "в строку \"фамилия имя\" или похож на нее по написанию (опечатки), начиная с наиболее " +
+                    "похожих, с пагинацией limit / offset. С expand=address в каждого клиента вложен его адрес. " +
                     "Если клиентов с такими данными нет, возвращается пустой список."
     )
     @ApiResponses(value = {
@@ -111,19 +159,56 @@ public class ClientController {
                                     implementation = ClientDto.class
                             )
                     )
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Не указаны ни q, ни firstName и lastName, или некорректные limit / offset",
+                    content = @Content(
+                            mediaType = "application/json",
+                            examples = @ExampleObject(value = "{\"error\": \"Некорректные параметры поиска\"}")
+                    )
             )
     })
-    public ResponseEntity<List<ClientDto>> getClientByNameAndSurname(@RequestParam String firstName,
-                                                       @RequestParam String lastName) {
-        List<ClientDto> clients = clientService.getByNameAndSurname(firstName, lastName);
-        return ResponseEntity.ok(clients);  // 200 OK
+    public ResponseEntity<?> getClientByNameAndSurname(
+            @Parameter(description = "Имя клиента (точное совпадение)", example = "Иван")
+            @RequestParam(required = false) String firstName,
+            @Parameter(description = "Фамилия клиента (точное совпадение)", example = "Иванов")
+            @RequestParam(required = false) String lastName,
+            @Parameter(description = "Часть фамилии и имени или написание с опечаткой", example = "иваноф ив")
+            @RequestParam(required = false) String q,
+            @Parameter(description = "Количество клиентов в ответе при поиске по q (опционально)", example = "20")
+            @RequestParam(required = false, defaultValue = "20") Integer limit,
+            @Parameter(description = "Смещение от начала результатов при поиске по q (опционально)", example = "0")
+            @RequestParam(required = false, defaultValue = "0") Integer offset,
+            @Parameter(description = "address — вложить адрес клиента в ответ (опционально)", example = "address")
+            @RequestParam(required = false) String expand) {
+        if (expand != null && !EXPAND_ADDRESS.equals(expand)) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", "Неизвестное значение expand"));  // 400 Bad Request
+        }
+        if (q == null && (firstName == null || lastName == null)) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", "Некорректные параметры поиска"));  // 400 Bad Request
+        }
+        try {
+            List<ClientDto> clients = q != null
+                    ? clientService.search(q, offset, limit)
+                    : clientService.getByNameAndSurname(firstName, lastName);
+            return ResponseEntity.ok(expand != null ? clientService.withAddresses(clients) : clients);  // 200 OK
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", "Некорректные параметры поиска"));  // 400 Bad Request
+        }
     }
 
     @GetMapping("/clients")
     @Operation(
             summary = "Получение списка всех клиентов",
-            description = "Возвращает список клиентов с возможностью указания лимита и смещения для пагинации. " +
-                    "Если параметры не указаны, возвращается полный список."
+            description = "Возвращает список клиентов в порядке id с возможностью указания лимита и смещения " +
+                    "для пагинации: offset клиентов пропускается, возвращается не больше limit следующих. " +
+                    "Если параметры не указаны, возвращается полный список. Стоимость запроса растет с offset, " +
+                    "для последовательного обхода используйте GET /clients/page. " +
+                    "С expand=address в каждого клиента вложен его адрес."
     )
     @ApiResponses(value = {
             @ApiResponse(
@@ -142,7 +227,7 @@ public class ClientController {
                     description = "Некорректные значения limit / offset",
                     content = @Content(
                             mediaType = "application/json",
-                            examples = @ExampleObject(value = "{\"error\": \"Некорректные limit или offset (< 1)\"}")
+                            examples = @ExampleObject(value = "{\"error\": \"Некорректные limit (< 1) или offset (< 0)\"}")
                     )
             )
     })
@@ -154,21 +239,77 @@ public class ClientController {
             )
             @RequestParam(required = false) Integer limit,
             @Parameter(
-                    description = "Смещение (отступ) для пагинации (опционально)",
+                    description = "Количество пропускаемых клиентов (опционально)",
                     required = false,
                     example = "5"
             )
-            @RequestParam(required = false) Integer offset) {
+            @RequestParam(required = false) Integer offset,
+            @Parameter(description = "address — вложить адрес клиента в ответ (опционально)", example = "address")
+            @RequestParam(required = false) String expand) {
+        if (expand != null && !EXPAND_ADDRESS.equals(expand)) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", "Неизвестное значение expand"));  // 400 Bad Request
+        }
         try {
             List<ClientDto> clients = clientService.getAll(limit, offset);
-            return ResponseEntity.ok(clients);  // 200 OK
+            return ResponseEntity.ok(expand != null ? clientService.withAddresses(clients) : clients);  // 200 OK
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                    .body(Map.of("error", "Некорректные limit или offset (< 1)"));  // 404 Not Found
+                    .body(Map.of("error", "Некорректные limit (< 1) или offset (< 0)"));  // 404 Not Found
         }
 
     }
 
+    @GetMapping("/clients/page")
+    @Operation(
+            summary = "Постраничный обход клиентов",
+            description = "Возвращает страницу клиентов в порядке id и курсор next для запроса следующей страницы " +
+                    "(null на последней странице). Страница начинается сразу после клиента из курсора, поэтому " +
+                    "время ответа не зависит от номера страницы и размера таблицы. " +
+                    "С expand=address в каждого клиента вложен его адрес."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Страница клиентов",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = CursorPageDto.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Некорректный limit или курсор",
+                    content = @Content(
+                            mediaType = "application/json",
+                            examples = @ExampleObject(value = "{\"error\": \"Некорректный limit или курсор\"}")
+                    )
+            )
+    })
+    public ResponseEntity<?> getClientPage(
+            @Parameter(description = "Количество клиентов на странице (опционально)", example = "50")
+            @RequestParam(required = false) Integer limit,
+            @Parameter(description = "Курсор next из предыдущей страницы (опционально)",
+                    example = "Cj1cHooPTnudPCsfTmp8jQ")
+            @RequestParam(required = false) String after,
+            @Parameter(description = "address — вложить адрес клиента в ответ (опционально)", example = "address")
+            @RequestParam(required = false) String expand) {
+        if (expand != null && !EXPAND_ADDRESS.equals(expand)) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", "Неизвестное значение expand"));  // 400 Bad Request
+        }
+        try {
+            CursorPageDto<ClientDto> page = clientService.getPage(after, limit != null ? limit : defaultPageSize);
+            if (expand != null) {
+                page.setItems(clientService.withAddresses(page.getItems()));
+            }
+            return ResponseEntity.ok(page);  // 200 OK
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", "Некорректный limit или курсор"));  // 400 Bad Request
+        }
+    }
+
     @PatchMapping("/clients/{id}/address")
     @Operation(
             summary = "Обновление адреса клиента",
@@ -196,7 +337,7 @@ public class ClientController {
     })
     public ResponseEntity<?> changeClientAddress(@PathVariable UUID id,
                                                  @RequestBody AddressDto address) {
-        if (clientService.changeAddress(addressService, id, address)) {
+        if (clientService.changeAddress(id, address)) {
             ClientDto updatedClient = clientService.getById(id);
             return ResponseEntity.ok(updatedClient);  // 200 OK
         } else {
@@ -1,20 +1,36 @@
 package ru.shop.controller;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.MimeTypeUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import ru.shop.domain.model.ImageDto;
 import ru.shop.domain.service.image.ImageService;
-import ru.shop.domain.service.product.ProductService;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -22,19 +38,30 @@ import java.util.UUID;
 @RequestMapping("/api/v1")
 public class ImageController {
 
+    // Атрибуты Tomcat, по которым коннектор отдает файл через sendfile, минуя JVM
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
     private final ImageService service;
-    private final ProductService productService;
+    private final CacheControl cacheControl;
+    private final int maxBatchSize;
 
     @Autowired
-    public ImageController(ImageService imageService, ProductService productService) {
+    public ImageController(ImageService imageService,
+                           @Value("${shop.images.http.max-age:1h}") Duration maxAge,
+                           @Value("${shop.images.batch.max-size:100}") int maxBatchSize) {
         this.service = imageService;
-        this.productService = productService;
+        this.cacheControl = CacheControl.maxAge(maxAge).cachePublic();
+        this.maxBatchSize = maxBatchSize;
     }
 
-    @PostMapping("/images")
+    @PostMapping(value = "/images", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
     @Operation(
             summary = "Добавление нового изображения",
-            description = "Создает новое изображение и возвращает его уникальный идентификатор",
+            description = "Создает новое изображение из тела запроса и возвращает его уникальный идентификатор. " +
+                    "Тело запроса передается потоком в хранилище без буферизации в памяти.",
             responses = {
                     @ApiResponse(
                             responseCode = "201",
@@ -42,8 +69,8 @@ public class ImageController {
                     )
             }
     )
-    public ResponseEntity<?> addImage(@RequestParam UUID id, @RequestParam byte[] bytes) {
-        service.add(bytes, id);
+    public ResponseEntity<?> addImage(@RequestParam UUID id, InputStream content) throws IOException {
+        service.add(service.spool(content), id);
         URI location = ServletUriComponentsBuilder.fromCurrentRequest()
                 .path("/{id}")
                 .buildAndExpand(id)
@@ -51,10 +78,10 @@ public class ImageController {
         return ResponseEntity.created(location).body(id);  // 201 Created
     }
 
-    @PatchMapping("/images/{id}")
+    @PatchMapping(value = "/images/{id}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
     @Operation(
             summary = "Изменение изображения по ID",
-            description = "Заменяет массив байт изображения на новый"
+            description = "Заменяет содержимое изображения на тело запроса, передаваемое потоком"
     )
     @ApiResponses(value = {
             @ApiResponse(
@@ -72,8 +99,8 @@ public class ImageController {
                     )
             )
     })
-    public ResponseEntity<?> changeImage(@PathVariable UUID id, @RequestParam byte[] bytes) {
-        if (service.changeBytesById(bytes, id)) {
+    public ResponseEntity<?> changeImage(@PathVariable UUID id, InputStream content) throws IOException {
+        if (service.changeBytesById(service.spool(content), id)) {
             return ResponseEntity.ok(id);  // 200 ОК
         } else {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
@@ -116,6 +143,9 @@ public class ImageController {
             summary = "Получение изображения по ID",
             description = "Возвращает изображение по его уникальному идентификатору. " +
                     "Если изображение найдено, загружает его. " +
+                    "С параметром w возвращает уменьшенную копию ближайшей поддерживаемой ширины. " +
+                    "Поддерживается заголовок Range для частичной загрузки. " +
+                    "Возвращает ETag по хэшу содержимого и отвечает 304 на совпадающий If-None-Match. " +
                     "Если изображение с указанным ID не найдено, возвращает ошибку."
     )
     @ApiResponses(value = {
@@ -123,6 +153,38 @@ public class ImageController {
                     responseCode = "200",
                     description = "Изображение найдено, загружается файл"
             ),
+            @ApiResponse(
+                    responseCode = "206",
+                    description = "Изображение найдено, загружается запрошенный диапазон байт"
+            ),
+            @ApiResponse(
+                    responseCode = "304",
+                    description = "Изображение не изменилось с версии из заголовка If-None-Match"
+            ),
+            @ApiResponse(
+                    responseCode = "416",
+                    description = "Запрошенный диапазон байт не пересекается с изображением"
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Некорректная ширина уменьшенной копии",
+                    content = @Content(
+                            mediaType = "application/json",
+                            examples = @ExampleObject(
+                                    value = "{\"error\": \"Некорректная ширина изображения\"}"
+                            )
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "422",
+                    description = "Оригинал поврежден или слишком велик для уменьшенной копии",
+                    content = @Content(
+                            mediaType = "application/json",
+                            examples = @ExampleObject(
+                                    value = "{\"error\": \"Изображение 100000x100000 больше допустимых 50000000 пикселей\"}"
+                            )
+                    )
+            ),
             @ApiResponse(
                     responseCode = "404",
                     description = "Изображение с таким ID не найдено",
@@ -134,18 +196,27 @@ public class ImageController {
                     )
             )
     })
-    public ResponseEntity<?> getImageById(@PathVariable UUID id) {
-        ImageDto image = service.getById(id);
+    public ResponseEntity<?> getImageById(@PathVariable UUID id,
+                                          @Parameter(
+                                                  description = "Ширина уменьшенной копии в пикселях (опционально)",
+                                                  example = "256"
+                                          )
+                                          @RequestParam(required = false) Integer w,
+                                          @RequestHeader HttpHeaders headers,
+                                          HttpServletRequest request) {
+        if (w != null && w < 1) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", "Некорректная ширина изображения"));  // 400 Bad Request
+        }
+        ImageDto image;
+        try {
+            image = w == null ? service.getById(id) : service.getDerivative(id, w);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
+                    .body(Map.of("error", e.getMessage()));  // 422 Unprocessable Entity
+        }
         if (image != null) {
-            return ResponseEntity.ok()
-                    // указывает, что это бинарный файл
-                    .header("Content-Type", "application/octet-stream")
-
-                    // заставляет браузер скачать файл, а не отображать его
-                    .header("Content-Disposition",
-                            "attachment; filename=\"image_" + image.getId() + ".bin\"")
-
-                    .body(image.getBytes());
+            return streamImage(image, headers, request);
         } else {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(Map.of("error", "Изображение с таким ID не найдено"));  // 404 Not found
@@ -157,6 +228,8 @@ public class ImageController {
             summary = "Получение изображения по ID товара",
             description = "Возвращает изображение по уникальному идентификатору товара. " +
                     "Если изображение найдено, загружает его. " +
+                    "Поддерживается заголовок Range для частичной загрузки. " +
+                    "Возвращает ETag по хэшу содержимого и отвечает 304 на совпадающий If-None-Match. " +
                     "Если изображение с указанным ID товара не найдено, возвращает ошибку."
     )
     @ApiResponses(value = {
@@ -164,6 +237,18 @@ public class ImageController {
                     responseCode = "200",
                     description = "Изображение найдено, загружается файл"
             ),
+            @ApiResponse(
+                    responseCode = "206",
+                    description = "Изображение найдено, загружается запрошенный диапазон байт"
+            ),
+            @ApiResponse(
+                    responseCode = "304",
+                    description = "Изображение не изменилось с версии из заголовка If-None-Match"
+            ),
+            @ApiResponse(
+                    responseCode = "416",
+                    description = "Запрошенный диапазон байт не пересекается с изображением"
+            ),
             @ApiResponse(
                     responseCode = "404",
                     description = "Изображение с таким ID товара не найдено",
@@ -175,17 +260,190 @@ public class ImageController {
                     )
             )
     })
-    public ResponseEntity<?> getImageByProductId(@PathVariable UUID productId) {
-        ImageDto image = service.getByProductId(productId, productService);
+    public ResponseEntity<?> getImageByProductId(@PathVariable("id") UUID productId,
+                                                 @RequestHeader HttpHeaders headers,
+                                                 HttpServletRequest request) {
+        ImageDto image = service.getByProductId(productId);
         if (image != null) {
-            return ResponseEntity.ok()
-                    .header("Content-Type", "application/octet-stream")
-                    .header("Content-Disposition",
-                            "attachment; filename=\"image_" + image.getId() + ".bin\"")
-                    .body(image.getBytes());
+            return streamImage(image, headers, request);
         } else {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(Map.of("error", "Изображение с таким ID товара не найдено"));  // 404 Not found
         }
     }
+
+    @GetMapping("/images/batch")
+    @Operation(
+            summary = "Получение нескольких изображений одним запросом",
+            description = "Возвращает изображения по ID изображений и по ID товаров одним ответом multipart/mixed. " +
+                    "Каждая часть содержит заголовки Content-ID (ID изображения), Content-Length и ETag, " +
+                    "части изображений товаров — также X-Product-Id. " +
+                    "Ненайденные изображения пропускаются. Метаданные и содержимое, отсутствующие в кэше, " +
+                    "загружаются одним запросом к базе данных, ответ передается потоком."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Найденные изображения в частях multipart/mixed в порядке запроса"
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Не указаны ID или их больше допустимого",
+                    content = @Content(
+                            mediaType = "application/json",
+                            examples = @ExampleObject(
+                                    value = "{\"error\": \"Слишком много изображений в запросе\"}"
+                            )
+                    )
+            )
+    })
+    public ResponseEntity<?> getImages(@Parameter(description = "ID изображений")
+                                       @RequestParam(required = false) List<UUID> ids,
+                                       @Parameter(description = "ID товаров, изображения которых нужно вернуть")
+                                       @RequestParam(required = false) List<UUID> productIds) {
+        LinkedHashSet<UUID> imageIds = ids != null ? new LinkedHashSet<>(ids) : new LinkedHashSet<>();
+        LinkedHashSet<UUID> products = productIds != null ? new LinkedHashSet<>(productIds) : new LinkedHashSet<>();
+        if (imageIds.isEmpty() && products.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", "Не указаны ID изображений"));  // 400 Bad Request
+        }
+        if (imageIds.size() + products.size() > maxBatchSize) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", "Слишком много изображений в запросе"));  // 400 Bad Request
+        }
+
+        // Порядок частей совпадает с порядком запроса: сначала изображения, затем товары
+        List<ImageDto> images = new ArrayList<>();
+        List<UUID> owners = new ArrayList<>();
+        service.getAllById(imageIds).forEach((id, image) -> {
+            images.add(image);
+            owners.add(null);
+        });
+        service.getAllByProductId(products).forEach((productId, image) -> {
+            images.add(image);
+            owners.add(productId);
+        });
+
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        StreamingResponseBody body = out -> {
+            service.writeAll(images, (index, image) -> {
+                StringBuilder headers = new StringBuilder()
+                        .append("\r\n--").append(boundary).append("\r\n")
+                        .append(HttpHeaders.CONTENT_TYPE).append(": ").append(MediaType.APPLICATION_OCTET_STREAM_VALUE)
+                        .append("\r\n")
+                        .append(HttpHeaders.CONTENT_LENGTH).append(": ").append(image.getSize()).append("\r\n")
+                        .append("Content-ID: <").append(image.getId()).append(">\r\n");
+                String etag = etag(image);
+                if (etag != null) {
+                    headers.append(HttpHeaders.ETAG).append(": ").append(etag).append("\r\n");
+                }
+                if (owners.get(index) != null) {
+                    headers.append("X-Product-Id: ").append(owners.get(index)).append("\r\n");
+                }
+                out.write(headers.append("\r\n").toString().getBytes(StandardCharsets.US_ASCII));
+                return out;
+            });
+            out.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        };
+        return ResponseEntity.ok()
+                .contentType(new MediaType("multipart", "mixed", Map.of("boundary", boundary)))
+                .body(body);  // 200 OK
+    }
+
+    // Отдает изображение целиком или один диапазон из заголовка Range, читая байты прямо из хранилища.
+    // Несколько диапазонов в одном запросе не поддерживаются, и по RFC 9110 заголовок игнорируется.
+    // Условный запрос проверяется по метаданным, поэтому ответ 304 не читает содержимое.
+    private ResponseEntity<?> streamImage(final ImageDto image, final HttpHeaders requestHeaders,
+                                          final HttpServletRequest request) {
+        String etag = etag(image);
+        if (etag != null && matchesETag(requestHeaders, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .cacheControl(cacheControl)
+                    .build();  // 304 Not Modified
+        }
+        long size = image.getSize();
+        List<HttpRange> ranges;
+        try {
+            ranges = requestHeaders.getRange();
+        } catch (IllegalArgumentException e) {
+            ranges = List.of();  // некорректный Range игнорируется
+        }
+        String ifRange = requestHeaders.getFirst(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.equals(etag)) {
+            ranges = List.of();  // изображение изменилось, отдается целиком
+        }
+        if (ranges.size() == 1 && size > 0) {
+            long start;
+            long end;
+            try {
+                start = ranges.get(0).getRangeStart(size);
+                end = ranges.get(0).getRangeEnd(size);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                        .header(HttpHeaders.CONTENT_RANGE, "bytes */" + size)
+                        .build();  // 416 Range Not Satisfiable
+            }
+            ResponseEntity.BodyBuilder response = imageResponse(image, HttpStatus.PARTIAL_CONTENT, end - start + 1)
+                    .header(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+            return imageBody(response, image, request, start, end - start + 1);  // 206 Partial Content
+        }
+        return imageBody(imageResponse(image, HttpStatus.OK, size), image, request, 0, size);  // 200 OK
+    }
+
+    private ResponseEntity.BodyBuilder imageResponse(final ImageDto image, final HttpStatus status,
+                                                     final long length) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(status);
+        String etag = etag(image);
+        if (etag != null) {
+            response.eTag(etag);
+        }
+        return response
+                .cacheControl(cacheControl)
+                // указывает, что это бинарный файл
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .contentLength(length)
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+
+                // заставляет браузер скачать файл, а не отображать его
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"image_" + image.getId() + ".bin\"");
+    }
+
+    // Файл из дискового хранилища отдается коннектором через sendfile, остальное пишется потоком
+    // после возврата из контроллера, поэтому в памяти держится только буфер копирования
+    private ResponseEntity<?> imageBody(final ResponseEntity.BodyBuilder response, final ImageDto image,
+                                        final HttpServletRequest request, final long offset, final long length) {
+        Path file = service.resolveFile(image);
+        if (file != null && length > 0 && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toString());
+            request.setAttribute(SENDFILE_START, offset);
+            request.setAttribute(SENDFILE_END, offset + length);  // конец диапазона не включается
+            return response.build();
+        }
+        UUID id = image.getId();
+        StreamingResponseBody body = out -> service.writeRange(id, offset, length, out);
+        return response.body(body);
+    }
+
+    // Сильный ETag — хэш содержимого, вычисленный при записи
+    private static String etag(final ImageDto image) {
+        return image.getContentHash() != null ? "\"" + image.getContentHash() + "\"" : null;
+    }
+
+    // Для If-None-Match используется слабое сравнение (RFC 9110, 13.1.2)
+    private static boolean matchesETag(final HttpHeaders requestHeaders, final String etag) {
+        List<String> candidates;
+        try {
+            candidates = requestHeaders.getIfNoneMatch();
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        for (String candidate : candidates) {
+            if (candidate.equals("*") || candidate.equals(etag) || candidate.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
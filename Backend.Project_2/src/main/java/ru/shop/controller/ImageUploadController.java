@@ -0,0 +1,222 @@
+package ru.shop.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.ExampleObject;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import ru.shop.domain.model.UploadSessionDto;
+import ru.shop.domain.service.upload.ImageUploadService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Map;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/v1")
+public class ImageUploadController {
+
+    private final ImageUploadService service;
+
+    @Autowired
+    public ImageUploadController(ImageUploadService imageUploadService) {
+        this.service = imageUploadService;
+    }
+
+    @PostMapping("/images/uploads")
+    @Operation(
+            summary = "Создание сессии загрузки изображения по частям",
+            description = "Создает сессию, в которую затем отправляются части изображения по порядку",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "201",
+                            description = "Сессия создана",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = UploadSessionDto.class))
+                    )
+            }
+    )
+    public ResponseEntity<?> createUpload() throws IOException {
+        UploadSessionDto upload = service.create();
+        URI location = ServletUriComponentsBuilder.fromCurrentRequest()
+                .path("/{id}")
+                .buildAndExpand(upload.getId())
+                .toUri();
+        return ResponseEntity.created(location).body(upload);  // 201 Created
+    }
+
+    @GetMapping("/images/uploads/{id}")
+    @Operation(
+            summary = "Получение состояния сессии загрузки",
+            description = "Возвращает номер следующей ожидаемой части и количество принятых байт. " +
+                    "Используется для продолжения загрузки после обрыва связи."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Сессия найдена",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = UploadSessionDto.class))
+            ),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "Сессия не найдена или истекла",
+                    content = @Content(
+                            mediaType = "application/json",
+                            examples = @ExampleObject(value = "{\"error\": \"Сессия загрузки не найдена\"}")
+                    )
+            )
+    })
+    public ResponseEntity<?> getUpload(@PathVariable UUID id) {
+        UploadSessionDto upload = service.getById(id);
+        if (upload != null) {
+            return ResponseEntity.ok(upload);  // 200 OK
+        } else {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "Сессия загрузки не найдена"));  // 404 Not Found
+        }
+    }
+
+    @PutMapping(value = "/images/uploads/{id}/chunks/{number}",
+            consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    @Operation(
+            summary = "Отправка части изображения",
+            description = "Дописывает часть с указанным номером (с нуля). Части отправляются строго по порядку, " +
+                    "последнюю принятую часть можно отправить повторно."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Часть принята, возвращается состояние сессии",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = UploadSessionDto.class))
+            ),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "Сессия не найдена или истекла",
+                    content = @Content(
+                            mediaType = "application/json",
+                            examples = @ExampleObject(value = "{\"error\": \"Сессия загрузки не найдена\"}")
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "409",
+                    description = "Номер части не совпадает с ожидаемым или сессия занята другим запросом",
+                    content = @Content(
+                            mediaType = "application/json",
+                            examples = @ExampleObject(value = "{\"error\": \"Ожидается часть 3\"}")
+                    )
+            )
+    })
+    public ResponseEntity<?> uploadChunk(@PathVariable UUID id, @PathVariable Integer number,
+                                         InputStream content) throws IOException {
+        try {
+            UploadSessionDto upload = service.appendChunk(id, number, content);
+            if (upload != null) {
+                return ResponseEntity.ok(upload);  // 200 OK
+            } else {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Сессия загрузки не найдена"));  // 404 Not Found
+            }
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", e.getMessage()));  // 409 Conflict
+        }
+    }
+
+    @PostMapping("/images/uploads/{id}/commit")
+    @Operation(
+            summary = "Завершение загрузки изображения",
+            description = "Сохраняет собранное изображение с указанным ID. Если передан sha256, " +
+                    "содержимое проверяется по нему."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "201",
+                    description = "Изображение сохранено, возвращается его уникальный идентификатор"
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Хэш содержимого не совпал с переданным, сессия удалена",
+                    content = @Content(
+                            mediaType = "application/json",
+                            examples = @ExampleObject(
+                                    value = "{\"error\": \"SHA-256 содержимого не совпадает с ожидаемым\"}")
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "Сессия не найдена или истекла",
+                    content = @Content(
+                            mediaType = "application/json",
+                            examples = @ExampleObject(value = "{\"error\": \"Сессия загрузки не найдена\"}")
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "409",
+                    description = "Сессия занята другим запросом",
+                    content = @Content(
+                            mediaType = "application/json",
+                            examples = @ExampleObject(value = "{\"error\": \"Сессия загрузки занята другим запросом\"}")
+                    )
+            )
+    })
+    public ResponseEntity<?> commitUpload(@PathVariable UUID id, @RequestParam UUID imageId,
+                                          @RequestParam(required = false) String sha256) throws IOException {
+        try {
+            if (service.commit(id, imageId, sha256)) {
+                URI location = ServletUriComponentsBuilder.fromCurrentContextPath()
+                        .path("/api/v1/images/{id}")
+                        .buildAndExpand(imageId)
+                        .toUri();
+                return ResponseEntity.created(location).body(imageId);  // 201 Created
+            } else {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Сессия загрузки не найдена"));  // 404 Not Found
+            }
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", e.getMessage()));  // 400 Bad Request
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", e.getMessage()));  // 409 Conflict
+        }
+    }
+
+    @DeleteMapping("/images/uploads/{id}")
+    @Operation(
+            summary = "Отмена загрузки изображения",
+            description = "Удаляет сессию и принятые части"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "204",
+                    description = "Сессия удалена"
+            ),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "Сессия не найдена или истекла",
+                    content = @Content(
+                            mediaType = "application/json",
+                            examples = @ExampleObject(value = "{\"error\": \"Сессия загрузки не найдена\"}")
+                    )
+            )
+    })
+    public ResponseEntity<?> deleteUpload(@PathVariable UUID id) {
+        if (service.deleteById(id)) {
+            return ResponseEntity.noContent().build();  // 204 No Content
+        } else {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "Сессия загрузки не найдена"));  // 404 Not Found
+        }
+    }
+}
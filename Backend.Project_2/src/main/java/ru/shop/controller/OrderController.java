@@ -0,0 +1,84 @@
+package ru.shop.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.ExampleObject;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import ru.shop.domain.model.OrderDto;
+import ru.shop.domain.model.ProductDto;
+import ru.shop.domain.service.order.OrderService;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/v1")
+public class OrderController {
+
+    private final OrderService service;
+
+    @Autowired
+    public OrderController(OrderService orderService) {
+        this.service = orderService;
+    }
+
+    @PostMapping("/orders/reserve")
+    @Operation(
+            summary = "Резервирование товаров заказа",
+            description = "Уменьшает количество на складе по всем позициям заказа в одной транзакции. " +
+                    "Если какого-либо товара не хватает или он не найден, ни один товар не списывается. " +
+                    "Возвращает обновленные товары."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Товары зарезервированы, возвращаются обновленные товары",
+                    content = @Content(
+                            mediaType = "application/json",
+                            array = @ArraySchema(schema = @Schema(implementation = ProductDto.class))
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "Товар из заказа не найден",
+                    content = @Content(
+                            mediaType = "application/json",
+                            examples = @ExampleObject(
+                                    value = "{\"error\": \"Товар с таким ID не найден\"}"
+                            )
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Некорректные позиции заказа или недостаточно товара на складе",
+                    content = @Content(
+                            mediaType = "application/json",
+                            examples = @ExampleObject(
+                                    value = "{\"error\": \"Некорректное количество единиц товара\"}"
+                            )
+                    )
+            )
+    })
+    public ResponseEntity<?> reserveOrder(@RequestBody OrderDto order) {
+        try {
+            List<ProductDto> products = service.reserve(order);
+            if (products != null) {
+                return ResponseEntity.ok(products);  // 200 OK
+            } else {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Товар с таким ID не найден"));  // 404 Not Found
+            }
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", "Некорректное количество единиц товара"));  // 400 Bad Request
+        }
+    }
+
+}
@@ -1,21 +1,40 @@
 package ru.shop.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import ru.shop.domain.model.CursorPageDto;
+import ru.shop.domain.model.ImportFormat;
+import ru.shop.domain.model.ImportReportDto;
 import ru.shop.domain.model.ProductDto;
+import ru.shop.domain.model.ProductFilter;
+import ru.shop.domain.model.ProductSort;
+import ru.shop.domain.model.ProductStatsDto;
+import ru.shop.domain.model.ProductStatsGroup;
+import ru.shop.domain.service.product.ProductImportService;
 import ru.shop.domain.service.product.ProductService;
+import ru.shop.domain.service.product.ProductStatsService;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
 import java.net.URI;
-import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -23,11 +42,23 @@ import java.util.UUID;
 @RequestMapping("/api/v1")
 public class ProductController {
 
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
     private final ProductService service;
+    private final ProductImportService importService;
+    private final ProductStatsService statsService;
+    private final ObjectMapper objectMapper;
+    private final int defaultPageSize;
 
     @Autowired
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService, ProductImportService productImportService,
+                             ProductStatsService productStatsService, ObjectMapper objectMapper,
+                             @Value("${shop.products.page.default-limit:50}") int defaultPageSize) {
         this.service = productService;
+        this.importService = productImportService;
+        this.statsService = productStatsService;
+        this.objectMapper = objectMapper;
+        this.defaultPageSize = defaultPageSize;
     }
 
     @PostMapping("/products")
@@ -62,6 +93,49 @@ public class ProductController {
         }
     }
 
+    @PostMapping(value = "/products/import", consumes = {"application/x-ndjson", "text/csv"})
+    @Operation(
+            summary = "Массовая загрузка товаров",
+            description = "Загружает товары из NDJSON (по одному JSON-объекту в строке) или CSV " +
+                    "(первая строка - имена полей ProductDto через запятую). Тело читается потоком, " +
+                    "товары сохраняются пакетами. Строки с ошибками пропускаются, " +
+                    "остальные сохраняются; номера отклоненных строк и причины возвращаются в отчете."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Отчет о загрузке",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = ImportReportDto.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Неизвестное поле в заголовке CSV или тело запроса не удалось прочитать",
+                    content = @Content(
+                            mediaType = "application/json",
+                            examples = @ExampleObject(value = "{\"error\": \"Некорректный заголовок CSV\"}")
+                    )
+            )
+    })
+    public ResponseEntity<?> importProducts(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+            InputStream body) {
+        ImportFormat format = contentType.isCompatibleWith(APPLICATION_NDJSON)
+                ? ImportFormat.NDJSON
+                : ImportFormat.CSV;
+        try {
+            return ResponseEntity.ok(importService.importProducts(body, format));  // 200 OK
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", "Некорректный заголовок CSV"));  // 400 Bad Request
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", "Не удалось прочитать тело запроса"));  // 400 Bad Request
+        }
+    }
+
     @PatchMapping("/products/{id}/available-stock")
     @Operation(
             summary = "Уменьшение доступного количества товара",
@@ -103,8 +177,8 @@ public class ProductController {
     public ResponseEntity<?> reduceAmountOfProduct(@PathVariable UUID id,
                                                      @RequestParam Integer amount) {
         try {
-            if (service.reduceByAmount(id, amount)) {
-                ProductDto product = service.getById(id);
+            ProductDto product = service.reduceByAmount(id, amount);
+            if (product != null) {
                 return ResponseEntity.ok(product);
             } else {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND)
@@ -156,14 +230,82 @@ public class ProductController {
 
     @GetMapping("/products")
     @Operation(
-            summary = "Получение списка всех товаров",
-            description = "Возвращает список всех доступных товаров. " +
+            summary = "Получение списка товаров",
+            description = "Без параметров возвращает список всех доступных товаров, передаваемый потоком. " +
+                    "С параметрами limit, after, условиями отбора (category, minPrice, maxPrice, inStock, " +
+                    "supplierId) или порядком sort возвращает страницу товаров и курсор next для запроса " +
+                    "следующей страницы (null на последней странице). Курсор действителен только с тем же sort. " +
+                    "Отбор выполняется в базе данных по индексам, стоимость запроса страницы не зависит от ее номера. " +
                     "Если товаров нет, возвращается пустой список."
     )
     @ApiResponses(value = {
             @ApiResponse(
                     responseCode = "200",
-                    description = "Успешное получение списка товаров",
+                    description = "Успешное получение списка или страницы товаров",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(
+                                    type = "array",
+                                    implementation = ProductDto.class
+                            )
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Некорректные параметры списка",
+                    content = @Content(
+                            mediaType = "application/json",
+                            examples = @ExampleObject(value = "{\"error\": \"Некорректные параметры списка товаров\"}")
+                    )
+            )
+    })
+    public ResponseEntity<?> getAllProducts(
+            @Parameter(
+                    description = "Количество товаров на странице (опционально)",
+                    example = "50"
+            )
+            @RequestParam(required = false) Integer limit,
+            @Parameter(
+                    description = "Курсор next из предыдущей страницы (опционально)"
+            )
+            @RequestParam(required = false) String after,
+            @Parameter(description = "Категория товара (опционально)", example = "Пылесосы")
+            @RequestParam(required = false) String category,
+            @Parameter(description = "Минимальная цена включительно (опционально)", example = "1000")
+            @RequestParam(required = false) BigDecimal minPrice,
+            @Parameter(description = "Максимальная цена включительно (опционально)", example = "200000")
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @Parameter(description = "true — только товары в наличии, false — только отсутствующие (опционально)")
+            @RequestParam(required = false) Boolean inStock,
+            @Parameter(description = "ID поставщика (опционально)")
+            @RequestParam(required = false) UUID supplierId,
+            @Parameter(description = "Порядок: id (по умолчанию), price или -price", example = "price")
+            @RequestParam(required = false) String sort) {
+        try {
+            ProductFilter filter = new ProductFilter(category, minPrice, maxPrice, inStock, supplierId,
+                    sort != null ? ProductSort.fromParameter(sort) : ProductSort.ID);
+            if (limit == null && after == null && filter.isEmpty()) {
+                return streamProducts(MediaType.APPLICATION_JSON, false);  // 200 OK
+            }
+            CursorPageDto<ProductDto> page = service.getPage(filter, after, limit != null ? limit : defaultPageSize);
+            return ResponseEntity.ok(page);  // 200 OK
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", "Некорректные параметры списка товаров"));  // 400 Bad Request
+        }
+    }
+
+    @GetMapping("/products/search")
+    @Operation(
+            summary = "Поиск товаров по названию",
+            description = "Ищет товары, в названии которых есть все слова запроса целиком или как начало слова, " +
+                    "без учета регистра и различия е/ё. Результаты упорядочены по релевантности: " +
+                    "полные совпадения слов выше совпадений по началу. Поиск выполняется по индексу в памяти."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Найденные товары, пустой список, если ничего не найдено",
                     content = @Content(
                             mediaType = "application/json",
                             schema = @Schema(
@@ -171,11 +313,90 @@ public class ProductController {
                                     implementation = ProductDto.class
                             )
                     )
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Пустой запрос или некорректные limit / offset",
+                    content = @Content(
+                            mediaType = "application/json",
+                            examples = @ExampleObject(value = "{\"error\": \"Некорректный поисковый запрос\"}")
+                    )
+            )
+    })
+    public ResponseEntity<?> searchProducts(
+            @Parameter(description = "Поисковый запрос", example = "dyson пылес")
+            @RequestParam String q,
+            @Parameter(description = "Количество товаров в ответе (опционально)", example = "20")
+            @RequestParam(required = false, defaultValue = "20") Integer limit,
+            @Parameter(description = "Смещение от начала результатов (опционально)", example = "0")
+            @RequestParam(required = false, defaultValue = "0") Integer offset) {
+        try {
+            return ResponseEntity.ok(service.search(q, offset, limit));  // 200 OK
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", "Некорректный поисковый запрос"));  // 400 Bad Request
+        }
+    }
+
+    @GetMapping("/products/stats")
+    @Operation(
+            summary = "Агрегаты товаров по категориям или поставщикам",
+            description = "Возвращает количество товаров, суммарный остаток, стоимость остатка " +
+                    "(price * availableStock) и среднюю цену для каждой категории или каждого поставщика. " +
+                    "Агрегаты считаются в базе данных и кэшируются на shop.products.stats.expire-after-write, " +
+                    "поэтому могут отставать от изменений товаров не больше чем на этот срок."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Агрегаты, упорядоченные по категории или поставщику",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(
+                                    type = "array",
+                                    implementation = ProductStatsDto.class
+                            )
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Неизвестная группировка",
+                    content = @Content(
+                            mediaType = "application/json",
+                            examples = @ExampleObject(value = "{\"error\": \"Некорректная группировка\"}")
+                    )
+            )
+    })
+    public ResponseEntity<?> getProductStats(
+            @Parameter(description = "Группировка: category или supplier (опционально)", example = "category")
+            @RequestParam(required = false, defaultValue = "category") String groupBy) {
+        try {
+            return ResponseEntity.ok(statsService.getStats(ProductStatsGroup.fromParameter(groupBy)));  // 200 OK
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", "Некорректная группировка"));  // 400 Bad Request
+        }
+    }
+
+    @GetMapping("/products/export")
+    @Operation(
+            summary = "Выгрузка всех товаров",
+            description = "Возвращает все товары в формате NDJSON: по одному JSON-объекту в строке. " +
+                    "Товары читаются курсором и передаются потоком, поэтому память сервера не зависит " +
+                    "от размера каталога, а первые товары отправляются сразу."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Выгрузка товаров",
+                    content = @Content(
+                            mediaType = "application/x-ndjson",
+                            schema = @Schema(implementation = ProductDto.class)
+                    )
             )
     })
-    public ResponseEntity<List<ProductDto>> getAllProducts() {
-        List<ProductDto> products = service.getAll();
-        return ResponseEntity.ok(products);
+    public ResponseEntity<StreamingResponseBody> exportProducts() {
+        return streamProducts(APPLICATION_NDJSON, true);  // 200 OK
     }
 
     @DeleteMapping("/products")
@@ -207,4 +428,34 @@ public class ProductController {
                     .body(Map.of("error", "Товар с таким ID не найден"));
         }
     }
+
+    // Товары сериализуются по одному прямо в поток ответа: JSON-массивом или строками NDJSON
+    private ResponseEntity<StreamingResponseBody> streamProducts(final MediaType mediaType, final boolean lines) {
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                if (lines) {
+                    generator.setRootValueSeparator(null);  // иначе перед каждой строкой после первой пробел
+                } else {
+                    generator.writeStartArray();
+                }
+                service.forEach(product -> {
+                    try {
+                        generator.writeObject(product);
+                        if (lines) {
+                            generator.writeRaw('\n');
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                if (!lines) {
+                    generator.writeEndArray();
+                }
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(mediaType)
+                .body(body);
+    }
+
 }
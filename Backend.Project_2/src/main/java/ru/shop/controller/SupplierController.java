@@ -13,7 +13,6 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import ru.shop.domain.model.AddressDto;
 import ru.shop.domain.model.SupplierDto;
-import ru.shop.domain.service.address.AddressService;
 import ru.shop.domain.service.supplier.SupplierService;
 
 import java.net.URI;
@@ -26,12 +25,10 @@ import java.util.UUID;
 public class SupplierController {
 
     private final SupplierService service;
-    private final AddressService addressService;
 
     @Autowired
-    public SupplierController(SupplierService supplierService, AddressService addressService) {
+    public SupplierController(SupplierService supplierService) {
         this.service = supplierService;
-        this.addressService = addressService;
     }
 
     @PostMapping("/suppliers")
@@ -93,7 +90,7 @@ public class SupplierController {
     })
     public ResponseEntity<?> changeSupplierAddress(@PathVariable UUID id,
                                                  @RequestBody AddressDto address) {
-        if (service.changeAddress(addressService, id, address)) {
+        if (service.changeAddress(id, address)) {
             SupplierDto updatedSupplier = service.getById(id);
             return ResponseEntity.ok(updatedSupplier);  // 200 OK
         } else {
@@ -8,10 +8,15 @@ import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 
 import java.time.LocalDate;
+import java.util.Locale;
 import java.util.UUID;
 
 @Entity
-@Table(name = "client")
+// Поиск по имени и фамилии идет по нормализованным колонкам; триграммный индекс для нечеткого поиска
+// создается в import.sql, так как JPA не описывает индексы с классом операторов
+@Table(name = "client", indexes = {
+        @Index(name = "client_surname_name_search_idx", columnList = "surname_search, name_search")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -40,10 +45,26 @@ public class ClientEntity {
     @Column(name = "address_id", nullable = false)
     private UUID addressId;
 
+    @Column(name = "name_search", length = 30, updatable = false, nullable = false)
+    private String nameSearch;  // имя в нижнем регистре, ё заменена на е
+
+    @Column(name = "surname_search", length = 50, updatable = false, nullable = false)
+    private String surnameSearch;
+
     // Метод вызывается перед сохранением новой сущности
     @PrePersist
     public void prePersist() {
         this.registrationDate = LocalDate.now();
+        this.nameSearch = toSearchForm(name);
+        this.surnameSearch = toSearchForm(surname);
+    }
+
+    /**
+     * Приведение имени или запроса к форме для поиска: без крайних пробелов,
+     * в нижнем регистре, с е вместо ё.
+     */
+    public static String toSearchForm(final String value) {
+        return value.strip().toLowerCase(Locale.ROOT).replace('ё', 'е');
     }
 
 }
@@ -0,0 +1,61 @@
+package ru.shop.dao.model;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.domain.Persistable;
+
+import java.sql.Blob;
+
+@Entity
+@Table(name = "image_blob")
+@Getter
+@Setter
+@NoArgsConstructor
+public class ImageBlobEntity implements Persistable<String> {
+
+    @Id
+    @Column(updatable = false, nullable = false, length = 64)
+    private String hash;  // SHA-256 содержимого в hex, одинаковые изображения разделяют одну строку
+
+    @Lob  // хранится как Large Object (LOB), читается и пишется потоком без загрузки в память
+    private Blob bytes;  // null, если содержимое вынесено во внешнее хранилище
+
+    @Column(nullable = false)
+    private Long size;  // размер содержимого в байтах
+
+    @Column(name = "ref_count", nullable = false)
+    private Integer refCount;  // количество изображений, ссылающихся на содержимое
+
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private boolean created;  // ключ задается приложением, поэтому новизна строки отслеживается явно
+
+    public ImageBlobEntity(String hash, long size) {
+        this.hash = hash;
+        this.size = size;
+        this.refCount = 1;
+        this.created = true;
+    }
+
+    @Override
+    public String getId() {
+        return hash;
+    }
+
+    // Новая строка сохраняется через persist без предварительного select, который сделал бы merge
+    @Override
+    public boolean isNew() {
+        return created;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        created = false;
+    }
+
+}
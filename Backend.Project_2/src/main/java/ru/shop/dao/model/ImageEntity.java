@@ -9,7 +9,7 @@ import lombok.AllArgsConstructor;
 import java.util.UUID;
 
 @Entity
-@Table(name = "image")
+@Table(name = "image", indexes = @Index(name = "image_original_id_idx", columnList = "original_id"))
 @Getter
 @Setter
 @NoArgsConstructor
@@ -20,8 +20,15 @@ public class ImageEntity {
     @Column(updatable = false, nullable = false, unique = true)
     private UUID id;  // hibernate самостоятельно выберет тип uuid для базы данных
 
-    @Lob  // хранится как Large Object (LOB), в базе данных будет тип BYTEA
+    @Column(name = "content_hash", nullable = false, length = 64)
+    private String contentHash;  // ключ строки image_blob с содержимым
+
+    @Column(name = "original_id")
+    private UUID originalId;  // для уменьшенной копии — изображение, из которого она получена
+
+    private Integer width;  // ширина уменьшенной копии в пикселях
+
     @Column(nullable = false)
-    private byte[] bytes;
+    private Long size;  // размер изображения в байтах, нужен для Content-Length и Range без чтения LOB
 
-}
\ No newline at end of file
+}
@@ -8,7 +8,16 @@ import java.time.LocalDate;
 import java.util.UUID;
 
 @Entity
-@Table(name = "product")
+// Индексы под фильтры списка товаров в обоих порядках страниц: по id и по (price, id).
+// Порядок по убыванию цены читает те же индексы в обратном направлении.
+// Частичные индексы товаров в наличии создаются в import.sql
+@Table(name = "product", indexes = {
+        @Index(name = "product_category_id_idx", columnList = "category, id"),
+        @Index(name = "product_category_price_idx", columnList = "category, price, id"),
+        @Index(name = "product_price_idx", columnList = "price, id"),
+        @Index(name = "product_supplier_id_idx", columnList = "supplier_id, id"),
+        @Index(name = "product_supplier_price_idx", columnList = "supplier_id, price, id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -0,0 +1,24 @@
+package ru.shop.dao.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Entity
+@Table(name = "stock_journal")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockJournalEntity {
+
+    @Id
+    @Column(updatable = false, nullable = false, length = 50)
+    private String name;  // имя журнала горячих остатков
+
+    @Column(name = "last_segment", nullable = false)
+    private Long lastSegment;  // номер последнего сегмента, списания которого записаны в product
+
+}
@@ -1,15 +1,55 @@
 package ru.shop.dao.repository;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import ru.shop.dao.model.ClientEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface ClientRepository extends JpaRepository<ClientEntity, UUID> {
 
-    List<ClientEntity> findByNameAndSurname(String name, String surname);
+    // Без учета регистра: аргументы передаются в форме ClientEntity.toSearchForm, поиск идет по составному индексу
+    List<ClientEntity> findBySurnameSearchAndNameSearch(String surnameSearch, String nameSearch);
+
+    // Подстрока или похожее написание "фамилия имя"; выражение совпадает с триграммным индексом из import.sql,
+    // ближайшие по триграммному расстоянию клиенты выбираются обходом индекса без сортировки всей таблицы
+    @Query(value = "SELECT * FROM client " +
+            "WHERE (surname_search || ' ' || name_search) LIKE :pattern " +
+            "OR (surname_search || ' ' || name_search) % :query " +
+            "ORDER BY (surname_search || ' ' || name_search) <-> :query, id " +
+            "OFFSET :offset LIMIT :limit", nativeQuery = true)
+    List<ClientEntity> searchByFullName(String query, String pattern, long offset, long limit);
+
+    // Точное смещение в порядке первичного ключа, без отдельного запроса COUNT(*)
+    @Query(value = "SELECT * FROM client ORDER BY id OFFSET :offset LIMIT :limit", nativeQuery = true)
+    List<ClientEntity> findRange(long offset, long limit);
+
+    // Slice читает на одну строку больше размера страницы вместо COUNT(*);
+    // условие id > :id начинает проход по индексу первичного ключа сразу с нужной позиции
+    Slice<ClientEntity> findBy(Pageable pageable);
+
+    Slice<ClientEntity> findByIdGreaterThan(UUID id, Pageable pageable);
+
+    // SELECT ... FOR UPDATE: замена адреса того же клиента в другой транзакции ждет фиксации этой.
+    // Блокировка — отдельный оператор: в READ COMMITTED следующий оператор получает новый снимок
+    // и видит адрес, записанный предыдущей заменой, даже если та зафиксирована во время ожидания блокировки
+    @Query(value = "SELECT address_id FROM client WHERE id = :id FOR UPDATE", nativeQuery = true)
+    Optional<UUID> lockAddressId(UUID id);
+
+    // Замена адреса клиента, заблокированного lockAddressId в той же транзакции:
+    // новый адрес вставляется, ссылка переводится на него, прежний адрес удаляется
+    @Modifying
+    @Query(value = "WITH inserted AS (INSERT INTO address (id, country, city, street) " +
+            "VALUES (:addressId, :country, :city, :street) RETURNING id), " +
+            "updated AS (UPDATE client SET address_id = inserted.id FROM inserted WHERE client.id = :ownerId) " +
+            "DELETE FROM address WHERE id = :oldAddressId", nativeQuery = true)
+    int replaceAddress(UUID ownerId, UUID oldAddressId, UUID addressId, String country, String city, String street);
 
 }
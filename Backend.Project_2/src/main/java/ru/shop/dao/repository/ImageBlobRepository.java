@@ -0,0 +1,28 @@
+package ru.shop.dao.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+import ru.shop.dao.model.ImageBlobEntity;
+
+import java.util.List;
+
+@Repository
+public interface ImageBlobRepository extends CrudRepository<ImageBlobEntity, String> {
+
+    // Транзакционная advisory-блокировка по первым 64 битам хэша. Блокирует и еще не существующую
+    // строку, поэтому параллельные загрузки одинакового содержимого не вставляют ее дважды
+    @Query(value = "SELECT 1 FROM pg_advisory_xact_lock(CAST(CAST('x' || substr(:hash, 1, 16) AS bit(64)) AS bigint))",
+            nativeQuery = true)
+    Integer lock(String hash);
+
+    @Query("select b.hash from ImageBlobEntity b where b.bytes is not null")
+    List<String> findHashesStoredInDatabase(Pageable pageable);
+
+    // Large Object не удаляется вместе со строкой, поэтому освобождается явно
+    @Query(value = "SELECT lo_unlink(bytes) FROM image_blob WHERE hash = :hash AND bytes IS NOT NULL",
+            nativeQuery = true)
+    List<Integer> unlinkBytes(String hash);
+
+}
@@ -1,11 +1,32 @@
 package ru.shop.dao.repository;
 
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
 import ru.shop.dao.model.ImageEntity;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface ImageRepository extends CrudRepository<ImageEntity, UUID> {
+
+    List<ImageEntity> findByOriginalId(UUID originalId);
+
+    // SELECT ... FOR UPDATE: замена содержимого изображения ждет фиксации этой транзакции
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select i from ImageEntity i where i.id = :id")
+    Optional<ImageEntity> findLockedById(UUID id);
+
+    @Query("select i from ImageEntity i join ProductEntity p on p.imageId = i.id where p.id = :productId")
+    Optional<ImageEntity> findByProductId(UUID productId);
+
+    // Пары [id товара, изображение]
+    @Query("select p.id, i from ProductEntity p join ImageEntity i on p.imageId = i.id where p.id in :productIds")
+    List<Object[]> findAllByProductIdIn(Collection<UUID> productIds);
+
 }
@@ -1,11 +1,62 @@
 package ru.shop.dao.repository;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
 import ru.shop.dao.model.ProductEntity;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
-public interface ProductRepository extends JpaRepository<ProductEntity, UUID> {
+public interface ProductRepository extends JpaRepository<ProductEntity, UUID>,
+        JpaSpecificationExecutor<ProductEntity> {
+
+    // Однонаправленный курсор: драйвер PostgreSQL читает строки порциями по fetchSize внутри транзакции,
+    // а не загружает весь результат. Сущности только для чтения не хранят снимок для проверки изменений
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select p from ProductEntity p")
+    Stream<ProductEntity> streamAll();
+
+    // Проверка остатка и списание одним оператором: параллельные покупки не продают больше остатка.
+    // RETURNING возвращает обновленную строку, поэтому запрос выполняется как выборка в пишущей транзакции
+    @Transactional
+    @Query(value = "UPDATE product SET available_stock = available_stock - :amount " +
+            "WHERE id = :id AND available_stock >= :amount RETURNING *", nativeQuery = true)
+    Optional<ProductEntity> reduceAvailableStock(UUID id, int amount);
+
+    // SELECT ... ORDER BY id FOR UPDATE: строки блокируются в порядке сортировки
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<ProductEntity> findAllByIdInOrderByIdAsc(Collection<UUID> ids);
+
+    // Без проверки остатка: списания горячих товаров уже проверены в памяти
+    @Modifying
+    @Query("update ProductEntity p set p.availableStock = p.availableStock - :amount where p.id = :id")
+    int subtractAvailableStock(UUID id, int amount);
+
+    // Агрегаты считаются в базе данных одним проходом GROUP BY, без передачи строк товаров в приложение
+    @Query("select p.category as groupKey, count(p) as productCount, sum(p.availableStock) as totalStock, " +
+            "sum(p.price * p.availableStock) as stockValue, sum(p.price) as priceSum " +
+            "from ProductEntity p group by p.category order by p.category")
+    List<ProductStatsView> aggregateByCategory();
+
+    @Query("select cast(p.supplierId as String) as groupKey, count(p) as productCount, " +
+            "sum(p.availableStock) as totalStock, sum(p.price * p.availableStock) as stockValue, " +
+            "sum(p.price) as priceSum from ProductEntity p group by p.supplierId order by p.supplierId")
+    List<ProductStatsView> aggregateBySupplier();
+
 }
@@ -0,0 +1,80 @@
+package ru.shop.dao.repository;
+
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+import ru.shop.dao.model.ProductEntity;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Условия динамических запросов к таблице product.
+ * Каждое условие покрывается индексом из {@link ProductEntity} или частичным индексом из import.sql.
+ * Товары не в наличии (inStock=false) отбираются фильтром по индексу остальных условий.
+ */
+public final class ProductSpecifications {
+
+    private ProductSpecifications() {
+    }
+
+    /**
+     * Отбор товаров. Незаданные (null) условия не применяются.
+     *
+     * @param category      Категория.
+     * @param minPrice      Минимальная цена включительно.
+     * @param maxPrice      Максимальная цена включительно.
+     * @param inStock       true — только товары в наличии, false — только отсутствующие.
+     * @param supplierId    Уникальный идентификатор поставщика.
+     * @return Условие запроса.
+     */
+    public static Specification<ProductEntity> matching(final String category, final BigDecimal minPrice,
+                                                        final BigDecimal maxPrice, final Boolean inStock,
+                                                        final UUID supplierId) {
+        return (root, query, builder) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (category != null) {
+                predicates.add(builder.equal(root.get("category"), category));
+            }
+            if (minPrice != null) {
+                predicates.add(builder.greaterThanOrEqualTo(root.<BigDecimal>get("price"), minPrice));
+            }
+            if (maxPrice != null) {
+                predicates.add(builder.lessThanOrEqualTo(root.<BigDecimal>get("price"), maxPrice));
+            }
+            if (inStock != null) {
+                // Ноль подставляется в текст запроса, а не параметром: иначе общий план подготовленного
+                // запроса не может доказать условие частичного индекса available_stock > 0
+                Expression<Integer> zero = builder.literal(0);
+                predicates.add(inStock ? builder.greaterThan(root.<Integer>get("availableStock"), zero)
+                        : builder.equal(root.<Integer>get("availableStock"), zero));
+            }
+            if (supplierId != null) {
+                predicates.add(builder.equal(root.get("supplierId"), supplierId));
+            }
+            return builder.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    // Товары после позиции курсора при сортировке по id
+    public static Specification<ProductEntity> idAfter(final UUID id) {
+        return (root, query, builder) -> builder.greaterThan(root.<UUID>get("id"), id);
+    }
+
+    // Товары после позиции курсора при сортировке по цене и затем по id в том же направлении:
+    // (price, id) > (:price, :id) в виде price >= :price AND (price > :price OR id > :id).
+    // Первое условие — граница диапазона индекса, поэтому сканирование начинается с курсора, а не с начала
+    public static Specification<ProductEntity> priceAfter(final BigDecimal price, final UUID id,
+                                                          final boolean descending) {
+        return (root, query, builder) -> descending
+                ? builder.and(builder.lessThanOrEqualTo(root.<BigDecimal>get("price"), price),
+                builder.or(builder.lessThan(root.<BigDecimal>get("price"), price),
+                        builder.lessThan(root.<UUID>get("id"), id)))
+                : builder.and(builder.greaterThanOrEqualTo(root.<BigDecimal>get("price"), price),
+                builder.or(builder.greaterThan(root.<BigDecimal>get("price"), price),
+                        builder.greaterThan(root.<UUID>get("id"), id)));
+    }
+
+}
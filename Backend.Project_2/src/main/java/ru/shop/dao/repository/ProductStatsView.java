@@ -0,0 +1,20 @@
+package ru.shop.dao.repository;
+
+import java.math.BigDecimal;
+
+/**
+ * Строка агрегата товаров по группе: категории или поставщику.
+ */
+public interface ProductStatsView {
+
+    String getGroupKey();
+
+    long getProductCount();
+
+    Long getTotalStock();
+
+    BigDecimal getStockValue();
+
+    BigDecimal getPriceSum();
+
+}
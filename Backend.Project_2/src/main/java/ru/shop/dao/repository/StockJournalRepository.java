@@ -0,0 +1,9 @@
+package ru.shop.dao.repository;
+
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+import ru.shop.dao.model.StockJournalEntity;
+
+@Repository
+public interface StockJournalRepository extends CrudRepository<StockJournalEntity, String> {
+}
@@ -1,11 +1,30 @@
 package ru.shop.dao.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import ru.shop.dao.model.SupplierEntity;
 import org.springframework.stereotype.Repository;
 
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface SupplierRepository extends JpaRepository<SupplierEntity, UUID> {
+
+    // SELECT ... FOR UPDATE: замена адреса того же поставщика в другой транзакции ждет фиксации этой.
+    // Блокировка — отдельный оператор: в READ COMMITTED следующий оператор получает новый снимок
+    // и видит адрес, записанный предыдущей заменой, даже если та зафиксирована во время ожидания блокировки
+    @Query(value = "SELECT address_id FROM supplier WHERE id = :id FOR UPDATE", nativeQuery = true)
+    Optional<UUID> lockAddressId(UUID id);
+
+    // Замена адреса поставщика, заблокированного lockAddressId в той же транзакции:
+    // новый адрес вставляется, ссылка переводится на него, прежний адрес удаляется
+    @Modifying
+    @Query(value = "WITH inserted AS (INSERT INTO address (id, country, city, street) " +
+            "VALUES (:addressId, :country, :city, :street) RETURNING id), " +
+            "updated AS (UPDATE supplier SET address_id = inserted.id FROM inserted WHERE supplier.id = :ownerId) " +
+            "DELETE FROM address WHERE id = :oldAddressId", nativeQuery = true)
+    int replaceAddress(UUID ownerId, UUID oldAddressId, UUID addressId, String country, String city, String street);
+
 }
@@ -1,5 +1,6 @@
 package ru.shop.domain.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.Getter;
 import lombok.Setter;
@@ -37,4 +38,8 @@ public class ClientDto {
             example = "34053e93-0892-4076-80d3-16cc962bf01c")
     private UUID addressId;
 
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @Schema(description = "Адрес клиента: новый адрес при массовой загрузке; в ответах отсутствует, если не запрошен")
+    private AddressDto address;
+
 }
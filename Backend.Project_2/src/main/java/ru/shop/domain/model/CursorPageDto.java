@@ -0,0 +1,25 @@
+package ru.shop.domain.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Страница списка с курсором следующей страницы")
+public class CursorPageDto<T> {
+
+    @Schema(description = "Элементы страницы")
+    private List<T> items;
+
+    @Schema(description = "Курсор следующей страницы для параметра after, null на последней странице",
+            example = "8wzoqxxBTcWR1bVl_CTYVg")
+    private String next;
+
+}
@@ -18,7 +18,11 @@ public class ImageDto {
             example = "66263b6f-10c7-4af5-ba50-2de9765eea33")
     private UUID id;
 
-    @Schema(description = "Изображение в формате массива байт")
-    private byte[] bytes;
+    @Schema(description = "Размер изображения в байтах", example = "524288")
+    private Long size;
+
+    @Schema(description = "SHA-256 содержимого изображения в шестнадцатеричном виде",
+            example = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08")
+    private String contentHash;
 
 }
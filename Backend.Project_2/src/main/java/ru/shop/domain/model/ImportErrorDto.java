@@ -0,0 +1,22 @@
+package ru.shop.domain.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Строка массовой загрузки, которая не была сохранена")
+public class ImportErrorDto {
+
+    @Schema(description = "Номер строки в теле запроса, начиная с 1", example = "42")
+    private long line;
+
+    @Schema(description = "Причина отказа", example = "Не заполнены обязательные поля")
+    private String error;
+
+}
@@ -0,0 +1,14 @@
+package ru.shop.domain.model;
+
+/**
+ * Формат тела запроса массовой загрузки.
+ */
+public enum ImportFormat {
+
+    /** По одному JSON-объекту в строке */
+    NDJSON,
+
+    /** Строка заголовка с именами полей, затем по одной записи в строке */
+    CSV
+
+}
@@ -0,0 +1,26 @@
+package ru.shop.domain.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@Schema(description = "Результат массовой загрузки")
+public class ImportReportDto {
+
+    @Schema(description = "Количество сохраненных записей", example = "99998")
+    private long imported;
+
+    @Schema(description = "Количество отклоненных записей", example = "2")
+    private long failed;
+
+    @Schema(description = "Отклоненные строки с причинами, не больше shop.*.import.max-errors первых строк")
+    private List<ImportErrorDto> errors = new ArrayList<>();
+
+}
@@ -0,0 +1,21 @@
+package ru.shop.domain.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Заказ для резервирования товаров")
+public class OrderDto {
+
+    @Schema(description = "Позиции заказа")
+    private List<OrderLineDto> lines;
+
+}
@@ -0,0 +1,25 @@
+package ru.shop.domain.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.UUID;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Позиция заказа")
+public class OrderLineDto {
+
+    @Schema(description = "Уникальный идентификатор товара",
+            example = "f30ce8ab-1c41-4dc5-91d5-b565c24fd856")
+    private UUID productId;
+
+    @Schema(description = "Количество единиц товара", example = "2")
+    private Integer amount;
+
+}
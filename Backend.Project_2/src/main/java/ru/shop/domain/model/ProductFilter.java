@@ -0,0 +1,37 @@
+package ru.shop.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Условия отбора товаров. Незаданные (null) условия не применяются.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductFilter {
+
+    private String category;
+
+    private BigDecimal minPrice;
+
+    private BigDecimal maxPrice;
+
+    private Boolean inStock;
+
+    private UUID supplierId;
+
+    private ProductSort sort = ProductSort.ID;
+
+    public boolean isEmpty() {
+        return category == null && minPrice == null && maxPrice == null && inStock == null
+                && supplierId == null && sort == ProductSort.ID;
+    }
+
+}
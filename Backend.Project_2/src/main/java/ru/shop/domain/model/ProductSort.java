@@ -0,0 +1,34 @@
+package ru.shop.domain.model;
+
+/**
+ * Порядок страниц списка товаров. Внутри равных цен товары упорядочены по id в направлении цены.
+ */
+public enum ProductSort {
+
+    ID("id"),
+    PRICE_ASC("price"),
+    PRICE_DESC("-price");
+
+    private final String parameter;
+
+    ProductSort(String parameter) {
+        this.parameter = parameter;
+    }
+
+    /**
+     * Разбор значения параметра запроса.
+     *
+     * @param parameter id, price или -price.
+     * @return Порядок.
+     * @throws IllegalArgumentException Неизвестный порядок
+     */
+    public static ProductSort fromParameter(final String parameter) throws IllegalArgumentException {
+        for (ProductSort sort : values()) {
+            if (sort.parameter.equals(parameter)) {
+                return sort;
+            }
+        }
+        throw new IllegalArgumentException("unknown sort: " + parameter);
+    }
+
+}
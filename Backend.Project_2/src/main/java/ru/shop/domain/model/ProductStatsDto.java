@@ -0,0 +1,33 @@
+package ru.shop.domain.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Агрегаты товаров одной категории или одного поставщика")
+public class ProductStatsDto {
+
+    @Schema(description = "Категория или уникальный идентификатор поставщика", example = "Пылесосы")
+    private String key;
+
+    @Schema(description = "Количество товаров", example = "42")
+    private long productCount;
+
+    @Schema(description = "Суммарный остаток на складе", example = "630")
+    private long totalStock;
+
+    @Schema(description = "Стоимость остатка: сумма price * availableStock", example = "94493700.00")
+    private BigDecimal stockValue;
+
+    @Schema(description = "Средняя цена товара", example = "149990.00")
+    private BigDecimal averagePrice;
+
+}
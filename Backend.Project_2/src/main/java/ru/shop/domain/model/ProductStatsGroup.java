@@ -0,0 +1,33 @@
+package ru.shop.domain.model;
+
+/**
+ * Группировка агрегатов товаров.
+ */
+public enum ProductStatsGroup {
+
+    CATEGORY("category"),
+    SUPPLIER("supplier");
+
+    private final String parameter;
+
+    ProductStatsGroup(String parameter) {
+        this.parameter = parameter;
+    }
+
+    /**
+     * Разбор значения параметра запроса.
+     *
+     * @param parameter category или supplier.
+     * @return Группировка.
+     * @throws IllegalArgumentException Неизвестная группировка
+     */
+    public static ProductStatsGroup fromParameter(final String parameter) throws IllegalArgumentException {
+        for (ProductStatsGroup group : values()) {
+            if (group.parameter.equals(parameter)) {
+                return group;
+            }
+        }
+        throw new IllegalArgumentException("unknown group: " + parameter);
+    }
+
+}
@@ -0,0 +1,28 @@
+package ru.shop.domain.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.UUID;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Состояние сессии загрузки изображения по частям")
+public class UploadSessionDto {
+
+    @Schema(description = "Уникальный идентификатор сессии загрузки",
+            example = "0f8fad5b-d9cb-469f-a165-70867728950e")
+    private UUID id;
+
+    @Schema(description = "Номер следующей ожидаемой части, нумерация с нуля", example = "3")
+    private Integer nextChunk;
+
+    @Schema(description = "Количество принятых байт", example = "25165824")
+    private Long receivedBytes;
+
+}
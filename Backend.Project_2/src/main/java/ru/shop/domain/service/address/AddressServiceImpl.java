@@ -42,7 +42,7 @@ public class AddressServiceImpl implements AddressService {
         }
     }
 
-    private boolean isValidDto(final AddressDto address) {
+    public static boolean isValidDto(final AddressDto address) {
         return address.getId() != null &&
                 address.getCountry() != null &&
                 address.getCity() != null &&
@@ -0,0 +1,31 @@
+package ru.shop.domain.service.client;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Позиция последнего клиента страницы.
+ * Передается клиенту как непрозрачная строка base64url, как и курсор страниц товаров.
+ *
+ * @param id Уникальный идентификатор клиента.
+ */
+record ClientCursor(UUID id) {
+
+    String encode() {
+        ByteBuffer bytes = ByteBuffer.allocate(16)
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.array());
+    }
+
+    static ClientCursor decode(final String cursor) throws IllegalArgumentException {
+        byte[] bytes = Base64.getUrlDecoder().decode(cursor);
+        if (bytes.length != 16) {
+            throw new IllegalArgumentException("invalid cursor");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new ClientCursor(new UUID(buffer.getLong(), buffer.getLong()));
+    }
+
+}
@@ -0,0 +1,23 @@
+package ru.shop.domain.service.client;
+
+import ru.shop.domain.model.ImportReportDto;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public interface ClientImportService {
+
+    /**
+     * Массовая регистрация клиентов из NDJSON: по одному клиенту в строке.
+     * Клиент проверяется по тем же правилам, что и при добавлении одного клиента.
+     * Новый адрес можно передать в поле address, тогда addressId можно не указывать.
+     * Клиенты сохраняются пакетами, каждый пакет в своей транзакции. Ошибочные строки
+     * не мешают сохранению остальных и попадают в отчет.
+     *
+     * @param content Тело запроса в кодировке UTF-8.
+     * @return Количество сохраненных и отклоненных строк с причинами отказа.
+     * @throws IOException Ошибка чтения тела запроса, уже сохраненные пакеты остаются в базе данных
+     */
+    ImportReportDto importClients(final InputStream content) throws IOException;
+
+}
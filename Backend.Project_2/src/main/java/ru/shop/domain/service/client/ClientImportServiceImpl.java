@@ -0,0 +1,114 @@
+package ru.shop.domain.service.client;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.shop.dao.model.AddressEntity;
+import ru.shop.dao.model.ClientEntity;
+import ru.shop.domain.model.AddressDto;
+import ru.shop.domain.model.ClientDto;
+import ru.shop.domain.model.ImportReportDto;
+import ru.shop.domain.service.address.AddressServiceImpl;
+import ru.shop.domain.service.importer.ImportBatchWriter;
+import ru.shop.mapper.ClientMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Массовая регистрация клиентов из NDJSON.
+ * Строки разбираются и проверяются по одной, клиенты вместе с новыми адресами
+ * сохраняются пакетами {@link ImportBatchWriter}.
+ */
+@Service
+public class ClientImportServiceImpl implements ClientImportService {
+
+    private final EntityManager entityManager;
+    private final TransactionTemplate writeTransaction;
+    private final ObjectReader jsonReader;
+    private final ClientMapper mapper;
+    private final int batchSize;
+    private final int maxErrors;
+
+    @Autowired
+    public ClientImportServiceImpl(EntityManager entityManager, PlatformTransactionManager transactionManager,
+                                   ObjectMapper objectMapper,
+                                   @Value("${shop.clients.import.batch-size:1000}") int batchSize,
+                                   @Value("${shop.clients.import.max-errors:1000}") int maxErrors) {
+        this.entityManager = entityManager;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.jsonReader = objectMapper.readerFor(ClientDto.class);
+        this.mapper = new ClientMapper();
+        this.batchSize = batchSize;
+        this.maxErrors = maxErrors;
+    }
+
+    @Override
+    public ImportReportDto importClients(final InputStream content) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(content, StandardCharsets.UTF_8));
+        ImportBatchWriter<ClientDto> writer = new ImportBatchWriter<>(entityManager, writeTransaction,
+                this::toEntities, clients -> { }, batchSize, maxErrors);
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            ClientDto client;
+            try {
+                client = jsonReader.readValue(line);
+            } catch (JsonProcessingException e) {
+                writer.reject(lineNumber, "Некорректная строка: " + e.getOriginalMessage());
+                continue;
+            }
+            String error = validate(client);
+            if (error != null) {
+                writer.reject(lineNumber, error);
+                continue;
+            }
+            writer.add(lineNumber, client);
+        }
+        return writer.finish();
+    }
+
+    private static String validate(final ClientDto client) {
+        if (client == null) {
+            return "Не заполнены обязательные поля клиента";
+        }
+        AddressDto address = client.getAddress();
+        if (address != null) {
+            if (!AddressServiceImpl.isValidDto(address)) {
+                return "Не заполнены обязательные поля адреса";
+            }
+            if (client.getAddressId() == null) {
+                client.setAddressId(address.getId());
+            } else if (!client.getAddressId().equals(address.getId())) {
+                return "addressId не совпадает с id адреса";
+            }
+        }
+        return ClientServiceImpl.isValidClientDto(client) ? null : "Не заполнены обязательные поля клиента";
+    }
+
+    // Адрес сохраняется раньше клиента, ссылающегося на него
+    private List<?> toEntities(final ClientDto client) {
+        ClientEntity entity = mapper.toEntity(client, new ClientEntity());
+        AddressDto address = client.getAddress();
+        if (address == null) {
+            return List.of(entity);
+        }
+        return List.of(new AddressEntity(address.getId(), address.getCountry(), address.getCity(),
+                address.getStreet()), entity);
+    }
+
+}
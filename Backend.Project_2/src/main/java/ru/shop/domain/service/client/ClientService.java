@@ -3,7 +3,7 @@ package ru.shop.domain.service.client;
 import org.springframework.stereotype.Service;
 import ru.shop.domain.model.AddressDto;
 import ru.shop.domain.model.ClientDto;
-import ru.shop.domain.service.address.AddressService;
+import ru.shop.domain.model.CursorPageDto;
 
 import java.util.List;
 import java.util.UUID;
@@ -38,7 +38,7 @@ public interface ClientService {
     ClientDto getById(final UUID id);
 
     /**
-     * Получение клиентов по имени и фамилии.
+     * Получение клиентов по имени и фамилии без учета регистра и различия е/ё.
      *
      * @param name      Имя клиента.
      * @param surname   Фамилия клиента.
@@ -47,29 +47,64 @@ public interface ClientService {
      */
     List<ClientDto> getByNameAndSurname(final String name, final String surname);
 
+    /**
+     * Поиск клиентов по части или похожему написанию фамилии и имени.
+     * Запрос сравнивается со строкой "фамилия имя" без учета регистра и различия е/ё:
+     * подходят клиенты, у которых запрос входит в эту строку, и клиенты с похожим
+     * написанием (опечатки, пропущенные буквы).
+     *
+     * @param query     Строка запроса.
+     * @param offset    Количество пропускаемых результатов.
+     * @param limit     Количество клиентов в ответе.
+     * @return Клиенты, начиная с наиболее похожих. Пустой список, если ничего не найдено.
+     * @throws IllegalArgumentException Пустой запрос или некорректные offset / limit
+     */
+    List<ClientDto> search(final String query, final int offset, final int limit) throws IllegalArgumentException;
+
     /**
      * Получение списка клиентов с опциональной пагинацией.
      *
      * @param limit  Опциональный параметр, определяющий максимальное количество возвращаемых записей.
      *               Если равен null, возвращаются все записи.
-     * @param offset Опциональный параметр, определяющий смещение (начальную позицию) для выборки.
+     * @param offset Опциональный параметр, определяющий количество пропускаемых записей.
      *               Если равен null, выборка начинается с начала списка.
-     * @return Список клиентов. В случае отсутствия параметров возвращается весь список.
-     * @throws IllegalArgumentException Если limit < 1 || offset < 1.
+     * @return Список клиентов в порядке id. В случае отсутствия параметров возвращается весь список.
+     * @throws IllegalArgumentException Если limit < 1 || offset < 0.
      */
     List<ClientDto> getAll(final Integer limit, final Integer offset) throws IllegalArgumentException;
 
+    /**
+     * Получение страницы клиентов в порядке id.
+     * Страница начинается сразу после клиента из курсора, поэтому стоимость запроса
+     * не зависит от номера страницы, и количество клиентов не пересчитывается.
+     *
+     * @param after Курсор next из предыдущей страницы или null для первой страницы.
+     * @param limit Количество клиентов на странице.
+     * @return Страница клиентов с курсором следующей страницы.
+     * @throws IllegalArgumentException Некорректный limit или курсор
+     */
+    CursorPageDto<ClientDto> getPage(final String after, final int limit) throws IllegalArgumentException;
+
+    /**
+     * Заполнение адресов клиентов.
+     * Адреса всех клиентов читаются запросами IN по списку addressId, а не отдельным запросом на клиента.
+     *
+     * @param clients Клиенты.
+     * @return Те же клиенты с заполненным полем address.
+     */
+    List<ClientDto> withAddresses(final List<ClientDto> clients);
+
     /**
      * Изменение адреса клиента.
+     * Строка клиента блокируется, затем новый адрес добавляется, ссылка обновляется, а старый адрес
+     * удаляется в одной транзакции, поэтому ни сбой, ни параллельная замена не оставляют лишних адресов.
      *
-     * @param addressService    Сервис адресов.
      * @param clientId          Уникальный идентификатор клиента.
      *                          Если не найден в базе, операция не выполняется.
      * @param newAddress        Новый адрес.
      *                          Если данные некорректны, операция не выполняется.
      * @return Успешность выполнения операции.
      */
-    boolean changeAddress(final AddressService addressService,
-                          final UUID clientId, final AddressDto newAddress);
+    boolean changeAddress(final UUID clientId, final AddressDto newAddress);
 
 }
@@ -1,18 +1,28 @@
 package ru.shop.domain.service.client;
 
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.shop.dao.model.AddressEntity;
 import ru.shop.dao.model.ClientEntity;
+import ru.shop.dao.repository.AddressRepository;
 import ru.shop.dao.repository.ClientRepository;
 import ru.shop.mapper.ClientMapper;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import ru.shop.domain.model.AddressDto;
 import ru.shop.domain.model.ClientDto;
-import ru.shop.domain.service.address.AddressService;
+import ru.shop.domain.model.CursorPageDto;
+import ru.shop.domain.service.address.AddressServiceImpl;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -20,13 +30,24 @@ import java.util.stream.Collectors;
 @Service
 public class ClientServiceImpl implements ClientService {
 
+    // Ограничивает число параметров запроса IN: PostgreSQL принимает не больше 65535 параметров
+    private static final int ADDRESS_BATCH_SIZE = 1000;
+
     private final ClientRepository repository;
+    private final AddressRepository addressRepository;
     private final ClientMapper mapper;
+    private final TransactionTemplate writeTransaction;
+    private final int maxPageSize;
 
     @Autowired
-    public ClientServiceImpl(ClientRepository clientRepository) {
+    public ClientServiceImpl(ClientRepository clientRepository, AddressRepository addressRepository,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${shop.clients.page.max-limit:500}") int maxPageSize) {
         this.repository = clientRepository;
+        this.addressRepository = addressRepository;
         this.mapper = new ClientMapper();
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.maxPageSize = maxPageSize;
     }
 
     @Override
@@ -58,32 +79,43 @@ public class ClientServiceImpl implements ClientService {
 
     @Override
     public List<ClientDto> getByNameAndSurname(final String name, final String surname) {
-        List<ClientEntity> clients = repository.findByNameAndSurname(name, surname);
+        List<ClientEntity> clients = repository.findBySurnameSearchAndNameSearch(
+                ClientEntity.toSearchForm(surname), ClientEntity.toSearchForm(name));
         return clients.stream()
                 .map(entity -> mapper.toDto(entity, new ClientDto()))
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public List<ClientDto> search(final String query, final int offset,
+                                  final int limit) throws IllegalArgumentException {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("query must not be blank");
+        }
+        if (offset < 0 || limit < 1 || limit > maxPageSize) {
+            throw new IllegalArgumentException("offset must be >= 0, limit must be > 0 and <= " + maxPageSize);
+        }
+        String normalized = ClientEntity.toSearchForm(query);
+        // Символы шаблона LIKE в запросе ищутся буквально
+        String pattern = "%" + normalized.replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_") + "%";
+        return repository.searchByFullName(normalized, pattern, offset, limit).stream()
+                .map(entity -> mapper.toDto(entity, new ClientDto()))
+                .collect(Collectors.toList());
+    }
+
     @Override
     public List<ClientDto> getAll(final Integer limit,
                                   final Integer offset) throws IllegalArgumentException {
         List<ClientEntity> entities;
         if (limit == null && offset == null) {
-            entities = repository.findAll();
-        } else if ((limit != null && limit < 1) || (offset != null && offset < 1)) {
-            throw new IllegalArgumentException("Limit and offset must be > 1");
+            entities = repository.findAll(Sort.by("id"));
+        } else if ((limit != null && limit < 1) || (offset != null && offset < 0)) {
+            throw new IllegalArgumentException("limit must be > 0 and offset must be >= 0");
         } else {
-            int pageSize = Integer.MAX_VALUE;  // если limit null — берем очень большое число
-            if (limit != null) {
-                pageSize = limit;
-            }
-            int pageNumber = 0;
-            if (offset != null) {
-                pageNumber = offset / pageSize;  // для получения limit значений c offset позиции
-            }
-            Pageable pageable = PageRequest.of(pageNumber, pageSize);
-            Page<ClientEntity> page = repository.findAll(pageable);
-            entities = page.getContent();
+            entities = repository.findRange(offset != null ? offset : 0,
+                    limit != null ? limit : Long.MAX_VALUE);  // без limit — все записи после offset
         }
         return entities.stream()
                 .map(entity -> mapper.toDto(entity, new ClientDto()))
@@ -91,22 +123,59 @@ public class ClientServiceImpl implements ClientService {
     }
 
     @Override
-    public boolean changeAddress(final AddressService addressService,
-                                 final UUID clientId, final AddressDto newAddress) {
-        Optional<ClientEntity> clientEntityOpt = repository.findById(clientId);
-        if (clientEntityOpt.isPresent()) {
-            if (addressService.add(newAddress)) {
-                ClientEntity clientEntity = clientEntityOpt.get();
-                addressService.deleteById(clientEntity.getAddressId());
-                clientEntity.setAddressId(newAddress.getId());
-                repository.save(clientEntity);
-                return true;
+    public CursorPageDto<ClientDto> getPage(final String after, final int limit) throws IllegalArgumentException {
+        if (limit < 1 || limit > maxPageSize) {
+            throw new IllegalArgumentException("limit must be > 0 and <= " + maxPageSize);
+        }
+        Pageable pageable = PageRequest.of(0, limit, Sort.by("id"));
+        Slice<ClientEntity> slice = after != null
+                ? repository.findByIdGreaterThan(ClientCursor.decode(after).id(), pageable)
+                : repository.findBy(pageable);
+        List<ClientDto> clients = slice.getContent().stream()
+                .map(entity -> mapper.toDto(entity, new ClientDto()))
+                .collect(Collectors.toList());
+        String next = slice.hasNext() ? new ClientCursor(clients.get(clients.size() - 1).getId()).encode() : null;
+        return new CursorPageDto<>(clients, next);
+    }
+
+    @Override
+    public List<ClientDto> withAddresses(final List<ClientDto> clients) {
+        Map<UUID, AddressDto> addresses = new HashMap<>();
+        List<UUID> ids = clients.stream().map(ClientDto::getAddressId).distinct().toList();
+        for (int from = 0; from < ids.size(); from += ADDRESS_BATCH_SIZE) {
+            List<UUID> batch = ids.subList(from, Math.min(from + ADDRESS_BATCH_SIZE, ids.size()));
+            for (AddressEntity entity : addressRepository.findAllById(batch)) {
+                addresses.put(entity.getId(), toAddressDto(entity));
             }
         }
-        return false;
+        for (ClientDto client : clients) {
+            client.setAddress(addresses.get(client.getAddressId()));
+        }
+        return clients;
     }
 
-    private boolean isValidClientDto(final ClientDto client) {
+    @Override
+    public boolean changeAddress(final UUID clientId, final AddressDto newAddress) {
+        if (!AddressServiceImpl.isValidDto(newAddress)) {
+            return false;
+        }
+        try {
+            // Ошибка вставки прерывает транзакцию PostgreSQL, поэтому перехватывается вне нее
+            return Boolean.TRUE.equals(writeTransaction.execute(status -> {
+                Optional<UUID> oldAddressId = repository.lockAddressId(clientId);
+                if (oldAddressId.isEmpty()) {
+                    return false;
+                }
+                repository.replaceAddress(clientId, oldAddressId.get(), newAddress.getId(), newAddress.getCountry(),
+                        newAddress.getCity(), newAddress.getStreet());
+                return true;
+            }));
+        } catch (DataIntegrityViolationException e) {
+            return false;  // адрес с таким id уже существует
+        }
+    }
+
+    static boolean isValidClientDto(final ClientDto client) {
         return client.getId() != null &&
                 client.getName() != null &&
                 client.getSurname() != null &&
@@ -115,4 +184,13 @@ public class ClientServiceImpl implements ClientService {
                 client.getRegistrationDate() != null &&
                 client.getAddressId() != null;
     }
+
+    private static AddressDto toAddressDto(final AddressEntity entity) {
+        AddressDto address = new AddressDto();
+        address.setId(entity.getId());
+        address.setCountry(entity.getCountry());
+        address.setCity(entity.getCity());
+        address.setStreet(entity.getStreet());
+        return address;
+    }
 }
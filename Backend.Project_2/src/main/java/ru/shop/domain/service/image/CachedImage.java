@@ -0,0 +1,20 @@
+package ru.shop.domain.service.image;
+
+import ru.shop.domain.model.ImageDto;
+
+import java.util.UUID;
+
+/**
+ * Неизменяемая запись кэша метаданных изображений.
+ *
+ * @param id            Уникальный идентификатор изображения.
+ * @param size          Размер изображения в байтах.
+ * @param contentHash   SHA-256 содержимого, ключ кэша содержимого.
+ */
+public record CachedImage(UUID id, Long size, String contentHash) {
+
+    public ImageDto toDto() {
+        return new ImageDto(id, size, contentHash);
+    }
+
+}
@@ -0,0 +1,137 @@
+package ru.shop.domain.service.image;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+import ru.shop.domain.model.ImageDto;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Кэш изображений: метаданные по id изображения и ограниченное по суммарному размеру
+ * содержимое по SHA-256. Одинаковые изображения разделяют одну запись содержимого.
+ * Вытеснение W-TinyLFU (Caffeine) учитывает частоту обращений, поэтому разовые запросы
+ * не вытесняют популярные изображения. Содержимое может храниться вне кучи,
+ * чтобы крупные массивы не попадали в старое поколение.
+ */
+@Component
+public class ImageCache {
+
+    // Служебные поля записи и узла кэша, учитываются в весе вместе с содержимым
+    private static final int ENTRY_OVERHEAD = 128;
+
+    private final Cache<UUID, CachedImage> cache;
+    private final Cache<String, ByteBuffer> contents;
+    private final long maxEntrySize;
+    private final boolean offHeap;
+
+    @Autowired
+    public ImageCache(@Value("${shop.images.cache.max-size:256MB}") DataSize maxSize,
+                      @Value("${shop.images.cache.max-entry-size:1MB}") DataSize maxEntrySize,
+                      @Value("${shop.images.cache.max-images:100000}") long maxImages,
+                      @Value("${shop.images.cache.off-heap:false}") boolean offHeap,
+                      @Value("${shop.images.cache.expire-after-write:10m}") Duration expireAfterWrite,
+                      MeterRegistry meterRegistry) {
+        this.maxEntrySize = maxEntrySize.toBytes();
+        this.offHeap = offHeap;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxImages)
+                .expireAfterWrite(expireAfterWrite)  // верхняя граница устаревания при гонке с заменой
+                .recordStats()
+                .build();
+        // Содержимое по хэшу не меняется, поэтому не устаревает и только вытесняется
+        this.contents = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((String hash, ByteBuffer content) -> ENTRY_OVERHEAD + content.capacity())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "images");
+        CaffeineCacheMetrics.monitor(meterRegistry, contents, "image-contents");
+        Gauge.builder("shop.images.cache.resident", this, ImageCache::residentBytes)
+                .description("Суммарный размер изображений в кэше")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    public CachedImage get(final UUID id) {
+        return cache.getIfPresent(id);
+    }
+
+    public CachedImage put(final ImageDto image) {
+        CachedImage cached = new CachedImage(image.getId(), image.getSize(), image.getContentHash());
+        cache.put(image.getId(), cached);
+        return cached;
+    }
+
+    public ByteBuffer getContent(final String contentHash) {
+        return contents.getIfPresent(contentHash);
+    }
+
+    /**
+     * Помещение содержимого в кэш.
+     *
+     * @param contentHash   SHA-256 содержимого.
+     * @param content       Содержимое.
+     * @return Буфер с содержимым в куче или вне кучи.
+     */
+    public ByteBuffer putContent(final String contentHash, final byte[] content) {
+        ByteBuffer buffer = offHeap ? ByteBuffer.allocateDirect(content.length).put(content).flip()
+                : ByteBuffer.wrap(content);
+        contents.put(contentHash, buffer);
+        return buffer;
+    }
+
+    public boolean fitsContent(final long size) {
+        return size <= maxEntrySize;
+    }
+
+    // Повторная инвалидация после фиксации не дает читателю вернуть в кэш старое содержимое,
+    // прочитанное до фиксации изменяющей транзакции
+    public void invalidate(final UUID id) {
+        cache.invalidate(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.invalidate(id);
+                }
+            });
+        }
+    }
+
+    // Вызывается при освобождении содержимого, на которое не осталось ссылок
+    public void invalidateContent(final String contentHash) {
+        contents.invalidate(contentHash);
+    }
+
+    public static void writeRange(final ByteBuffer content, final long offset, final long length,
+                                  final OutputStream out) throws IOException {
+        ByteBuffer slice = content.duplicate();  // позиция и лимит не разделяются между потоками
+        slice.limit((int) (offset + length)).position((int) offset);
+        WritableByteChannel target = Channels.newChannel(out);
+        while (slice.hasRemaining()) {
+            target.write(slice);
+        }
+    }
+
+    private long residentBytes() {
+        return contents.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L);
+    }
+
+}
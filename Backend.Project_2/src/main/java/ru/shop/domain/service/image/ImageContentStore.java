@@ -0,0 +1,156 @@
+package ru.shop.domain.service.image;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import ru.shop.dao.model.ImageBlobEntity;
+import ru.shop.dao.repository.ImageBlobRepository;
+import ru.shop.domain.service.image.storage.ImageStorage;
+import ru.shop.domain.service.image.storage.SpooledContent;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Содержимое изображений со счетчиком ссылок.
+ * Изображения с одинаковым SHA-256 ссылаются на одну строку image_blob и один экземпляр
+ * содержимого в хранилище. Содержимое освобождается, когда удалена последняя ссылка.
+ * Изменения счетчика выполняются внутри транзакции вызывающего под блокировкой хэша.
+ */
+@Component
+public class ImageContentStore {
+
+    private final ImageBlobRepository repository;
+    private final ImageStorage storage;
+    private final ImageCache cache;
+
+    @Autowired
+    public ImageContentStore(ImageBlobRepository imageBlobRepository, ImageStorage imageStorage,
+                             ImageCache imageCache) {
+        this.repository = imageBlobRepository;
+        this.storage = imageStorage;
+        this.cache = imageCache;
+    }
+
+    /**
+     * Блокировка содержимого до конца транзакции.
+     * Хэши блокируются в порядке сортировки, поэтому транзакции, меняющие несколько ссылок, не взаимоблокируются.
+     *
+     * @param contentHashes SHA-256 содержимого, null пропускаются.
+     */
+    public void lock(final String... contentHashes) {
+        Arrays.stream(contentHashes)
+                .filter(Objects::nonNull)
+                .distinct()
+                .sorted()
+                .forEach(repository::lock);
+    }
+
+    /**
+     * Добавление ссылки на содержимое.
+     * Если такое содержимое уже хранится, временный файл удаляется и увеличивается счетчик ссылок.
+     *
+     * @param content Содержимое во временном файле. Файл переходит во владение хранилища.
+     * @return SHA-256 содержимого.
+     * @throws IOException Ошибка записи в хранилище.
+     */
+    public String attach(final SpooledContent content) throws IOException {
+        try {
+            lock(content.hash());
+            Optional<ImageBlobEntity> existing = repository.findById(content.hash());
+            if (existing.isPresent()) {
+                existing.get().setRefCount(existing.get().getRefCount() + 1);
+                content.delete();
+            } else {
+                ImageBlobEntity blob = new ImageBlobEntity(content.hash(), content.size());
+                storage.write(blob, content);
+                repository.save(blob);
+            }
+            return content.hash();
+        } catch (IOException | RuntimeException e) {
+            content.delete();
+            throw e;
+        }
+    }
+
+    /**
+     * Удаление ссылки на содержимое.
+     * Содержимое освобождается вместе с последней ссылкой.
+     *
+     * @param contentHash SHA-256 содержимого.
+     */
+    public void detach(final String contentHash) {
+        lock(contentHash);
+        repository.findById(contentHash).ifPresent(blob -> {
+            if (blob.getRefCount() > 1) {
+                blob.setRefCount(blob.getRefCount() - 1);
+            } else {
+                storage.release(blob);
+                repository.delete(blob);
+                cache.invalidateContent(contentHash);
+            }
+        });
+    }
+
+    public Optional<ImageBlobEntity> find(final String contentHash) {
+        return repository.findById(contentHash);
+    }
+
+    // Одним запросом для пакетной отдачи изображений
+    public Map<String, ImageBlobEntity> findAll(final Collection<String> contentHashes) {
+        Map<String, ImageBlobEntity> blobs = new HashMap<>();
+        if (!contentHashes.isEmpty()) {
+            repository.findAllById(contentHashes).forEach(blob -> blobs.put(blob.getHash(), blob));
+        }
+        return blobs;
+    }
+
+    /**
+     * Потоковая запись диапазона байт содержимого.
+     * Для содержимого в базе данных вызывается внутри транзакции, в которой загружена сущность.
+     *
+     * @param blob      Сущность содержимого.
+     * @param offset    Смещение первого байта диапазона.
+     * @param length    Количество байт диапазона.
+     * @param out       Поток, в который записываются байты.
+     * @throws IOException Ошибка чтения хранилища или записи в поток.
+     */
+    public void writeRange(final ImageBlobEntity blob, final long offset, final long length,
+                           final OutputStream out) throws IOException {
+        storage.writeRange(blob, offset, length, out);
+    }
+
+    /**
+     * Потоковая запись диапазона байт содержимого.
+     * Для содержимого в базе данных вызывается внутри транзакции.
+     *
+     * @param contentHash   SHA-256 содержимого.
+     * @param offset        Смещение первого байта диапазона.
+     * @param length        Количество байт диапазона.
+     * @param out           Поток, в который записываются байты.
+     * @throws IOException Содержимое не найдено, ошибка чтения хранилища или записи в поток.
+     */
+    public void writeRange(final String contentHash, final long offset, final long length,
+                           final OutputStream out) throws IOException {
+        Optional<ImageBlobEntity> blob = find(contentHash);
+        if (blob.isEmpty()) {
+            throw new IOException("Содержимое " + contentHash + " не найдено");
+        }
+        writeRange(blob.get(), offset, length, out);
+    }
+
+    public Path resolveFile(final String contentHash) {
+        return storage.resolveFile(contentHash);
+    }
+
+    public Path spoolDirectory() {
+        return storage.spoolDirectory();
+    }
+
+}
@@ -0,0 +1,365 @@
+package ru.shop.domain.service.image;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+import ru.shop.dao.model.ImageEntity;
+import ru.shop.dao.repository.ImageRepository;
+import ru.shop.domain.model.ImageDto;
+import ru.shop.domain.service.image.storage.SpooledContent;
+import ru.shop.mapper.ImageMapper;
+
+import javax.imageio.IIOException;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Генерация уменьшенных копий изображений средствами ImageIO.
+ * Копии хранятся как обычные изображения с детерминированным id, поэтому отдаются
+ * через то же хранилище и кэш. После загрузки оригинала все ширины генерируются
+ * ограниченным пулом потоков, а отсутствующая копия создается по запросу ровно один раз:
+ * параллельные запросы ждут результат уже идущей генерации.
+ * Размеры оригинала проверяются по заголовку до декодирования, поэтому изображение
+ * с огромным числом пикселей в маленьком файле не занимает всю память.
+ * Оригинал декодируется из временного файла, а не из массива в куче,
+ * и оригиналы больше настроенного размера не обрабатываются.
+ */
+@Component
+public class ImageDerivativeGenerator {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageDerivativeGenerator.class);
+
+    private final ImageRepository repository;
+    private final ImageContentStore contents;
+    private final ImageCache cache;
+    private final ImageMapper mapper;
+    private final TransactionTemplate writeTransaction;
+    private final TransactionTemplate readTransaction;
+    private final int[] widths;
+    private final long maxPixels;
+    private final long maxSourceSize;
+    private final ThreadPoolExecutor executor;
+    private final Map<UUID, CompletableFuture<ImageDto>> inFlight = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ImageDerivativeGenerator(ImageRepository imageRepository, ImageContentStore imageContentStore,
+                                    ImageCache imageCache, PlatformTransactionManager transactionManager,
+                                    @Value("${shop.images.derivatives.widths:64,128,256,512}") int[] widths,
+                                    @Value("${shop.images.derivatives.threads:2}") int threads,
+                                    @Value("${shop.images.derivatives.queue-capacity:1000}") int queueCapacity,
+                                    @Value("${shop.images.derivatives.max-pixels:50000000}") long maxPixels,
+                                    @Value("${shop.images.derivatives.max-source-size:50MB}") DataSize maxSourceSize) {
+        this.repository = imageRepository;
+        this.contents = imageContentStore;
+        this.cache = imageCache;
+        this.mapper = new ImageMapper();
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.widths = Arrays.stream(widths).sorted().toArray();
+        this.maxPixels = maxPixels;
+        this.maxSourceSize = maxSourceSize.toBytes();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), task -> {
+                    Thread thread = new Thread(task, "image-derivatives-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public static UUID derivedId(final UUID originalId, final int width) {
+        return UUID.nameUUIDFromBytes((originalId + ":w" + width).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Постановка в очередь генерации копий всех ширин.
+     * При переполнении очереди оставшиеся копии будут созданы по первому запросу.
+     *
+     * @param originalId Уникальный идентификатор оригинала.
+     */
+    public void scheduleAll(final UUID originalId) {
+        for (int width : widths) {
+            try {
+                executor.execute(() -> {
+                    try {
+                        getOrCreate(originalId, width);
+                    } catch (RuntimeException e) {
+                        log.warn("Не удалось создать копию {} шириной {}", originalId, width, e);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                log.warn("Очередь генерации копий переполнена, копии {} будут созданы по запросу", originalId);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Получение уменьшенной копии с генерацией при отсутствии.
+     * Ширина округляется вверх до ближайшей из настроенных, чтобы число копий было ограничено.
+     *
+     * @param originalId        Уникальный идентификатор оригинала.
+     * @param requestedWidth    Запрошенная ширина в пикселях.
+     * @return Метаданные копии, оригинала (если он не декодируется ImageIO) или null, если оригинал не найден.
+     * @throws IllegalArgumentException Оригинал поврежден, больше допустимого размера или числа пикселей.
+     */
+    public ImageDto getOrCreate(final UUID originalId, final int requestedWidth) throws IllegalArgumentException {
+        int width = snapWidth(requestedWidth);
+        UUID derivedId = derivedId(originalId, width);
+        CachedImage cached = cache.get(derivedId);
+        if (cached != null) {
+            return cached.toDto();
+        }
+        ImageDto existing = findStored(derivedId);
+        if (existing != null) {
+            return existing;
+        }
+
+        CompletableFuture<ImageDto> created = new CompletableFuture<>();
+        CompletableFuture<ImageDto> running = inFlight.putIfAbsent(derivedId, created);
+        if (running != null) {
+            try {
+                return running.join();  // копию уже генерирует другой поток
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        try {
+            // Генерация могла завершиться между проверкой базы и регистрацией в inFlight
+            ImageDto derivative = findStored(derivedId);
+            if (derivative == null) {
+                derivative = render(originalId, width, derivedId);
+                if (derivative != null && derivedId.equals(derivative.getId())) {
+                    cache.put(derivative);  // копия зафиксирована, следующий запрос найдет ее в кэше
+                }
+            }
+            created.complete(derivative);
+            return derivative;
+        } catch (RuntimeException e) {
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            // Запись удаляется только после того, как копия видна в кэше и базе данных
+            inFlight.remove(derivedId, created);
+        }
+    }
+
+    /**
+     * Удаление всех копий изображения.
+     * Вызывается внутри транзакции, удаляющей или изменяющей оригинал.
+     *
+     * @param originalId Уникальный идентификатор оригинала.
+     */
+    public void deleteAll(final UUID originalId) {
+        for (ImageEntity derivative : repository.findByOriginalId(originalId)) {
+            contents.detach(derivative.getContentHash());
+            repository.delete(derivative);
+            cache.invalidate(derivative.getId());
+        }
+    }
+
+    private ImageDto findStored(final UUID derivedId) {
+        Optional<ImageEntity> existing = repository.findById(derivedId);
+        return existing.map(entity -> cache.put(mapper.toDto(entity, new ImageDto())).toDto()).orElse(null);
+    }
+
+    private int snapWidth(final int requestedWidth) {
+        for (int width : widths) {
+            if (width >= requestedWidth) {
+                return width;
+            }
+        }
+        return widths[widths.length - 1];
+    }
+
+    private ImageDto render(final UUID originalId, final int width, final UUID derivedId) {
+        Source source = readTransaction.execute(status -> read(originalId));
+        if (source == null) {
+            return null;
+        }
+        byte[] derivative;
+        try {
+            derivative = resize(decode(source.file()), width);
+        } catch (IIOException e) {
+            throw new IllegalArgumentException("Изображение повреждено: " + e.getMessage(), e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            deleteQuietly(source.file());
+        }
+        if (derivative == null) {
+            return source.image();  // формат не поддерживается ImageIO, отдается оригинал
+        }
+        String sourceHash = source.image().getContentHash();
+        return writeTransaction.execute(status -> store(originalId, sourceHash, width, derivedId, derivative));
+    }
+
+    private Source read(final UUID originalId) {
+        Optional<ImageEntity> image = repository.findById(originalId);
+        if (image.isEmpty()) {
+            return null;
+        }
+        ImageEntity entity = image.get();
+        if (entity.getSize() > maxSourceSize) {
+            throw new IllegalArgumentException("Размер оригинала " + entity.getSize()
+                    + " байт больше допустимых " + maxSourceSize);
+        }
+        Path file = null;
+        try {
+            file = Files.createTempFile(contents.spoolDirectory(), "derivative-", ".part");
+            try (OutputStream out = Files.newOutputStream(file)) {
+                contents.writeRange(entity.getContentHash(), 0, entity.getSize(), out);
+            }
+        } catch (IOException e) {
+            deleteQuietly(file);
+            throw new UncheckedIOException(e);
+        }
+        return new Source(mapper.toDto(entity, new ImageDto()), file);
+    }
+
+    private static void deleteQuietly(final Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Не удалось удалить временный файл {}", file, e);
+        }
+    }
+
+    // Строка оригинала блокируется до фиксации копии: замена содержимого либо ждет ее и затем удаляет копию,
+    // либо уже зафиксирована, и тогда копия устаревшего содержимого не сохраняется
+    private ImageDto store(final UUID originalId, final String sourceHash, final int width,
+                           final UUID derivedId, final byte[] derivative) {
+        Optional<ImageEntity> original = repository.findLockedById(originalId);
+        if (original.isEmpty()) {
+            return null;  // оригинал удален во время генерации
+        }
+        if (!Objects.equals(original.get().getContentHash(), sourceHash)) {
+            // оригинал заменен во время генерации, копии нового содержимого уже запланированы
+            return mapper.toDto(original.get(), new ImageDto());
+        }
+        ImageEntity entity = repository.findById(derivedId).orElseGet(ImageEntity::new);
+        String previousHash = entity.getContentHash();
+        try {
+            SpooledContent content = SpooledContent.spool(new ByteArrayInputStream(derivative),
+                    contents.spoolDirectory());
+            contents.lock(content.hash(), previousHash);
+            entity.setContentHash(contents.attach(content));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (previousHash != null) {
+            contents.detach(previousHash);
+        }
+        entity.setId(derivedId);
+        entity.setSize((long) derivative.length);
+        entity.setOriginalId(originalId);
+        entity.setWidth(width);
+        repository.save(entity);
+        cache.invalidate(derivedId);
+        return mapper.toDto(entity, new ImageDto());
+    }
+
+    // Ширина и высота читаются из заголовка, пиксели декодируются только после проверки их числа
+    private BufferedImage decode(final Path file) throws IOException, IllegalArgumentException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+            if (in == null) {
+                throw new IOException("Не удалось открыть " + file);
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    throw new IllegalArgumentException("Изображение " + width + "x" + height
+                            + " больше допустимых " + maxPixels + " пикселей");
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // Пошаговое уменьшение вдвое заметно качественнее одного билинейного масштабирования
+    private static byte[] resize(final BufferedImage source, final int width) throws IOException {
+        if (source == null) {
+            return null;
+        }
+        int targetWidth = Math.min(width, source.getWidth());  // копия не бывает больше оригинала
+        int targetHeight = Math.max(1, (int) Math.round((double) source.getHeight() * targetWidth / source.getWidth()));
+        boolean alpha = source.getColorModel().hasAlpha();
+        BufferedImage current = source;
+        int currentWidth = source.getWidth();
+        int currentHeight = source.getHeight();
+        do {
+            currentWidth = Math.max(targetWidth, currentWidth / 2);
+            currentHeight = Math.max(targetHeight, currentHeight / 2);
+            BufferedImage next = new BufferedImage(currentWidth, currentHeight,
+                    alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = next.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.drawImage(current, 0, 0, currentWidth, currentHeight, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = next;
+        } while (currentWidth != targetWidth || currentHeight != targetHeight);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (!ImageIO.write(current, alpha ? "png" : "jpg", out)) {
+            throw new IOException("Нет кодировщика ImageIO для уменьшенной копии");
+        }
+        return out.toByteArray();
+    }
+
+    private record Source(ImageDto image, Path file) {
+    }
+
+}
@@ -2,31 +2,50 @@ package ru.shop.domain.service.image;
 
 import org.springframework.stereotype.Service;
 import ru.shop.domain.model.ImageDto;
-import ru.shop.domain.service.product.ProductService;
+import ru.shop.domain.service.image.storage.SpooledContent;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Service
 public interface ImageService {
 
+    /**
+     * Запись входящего изображения во временный файл с подсчетом размера и хэша.
+     * Выполняется до открытия транзакции, чтобы соединение с базой данных не ждало клиента.
+     *
+     * @param content Поток байт изображения.
+     * @return Содержимое во временном файле.
+     * @throws IOException Ошибка чтения потока или записи файла.
+     */
+    SpooledContent spool(final InputStream content) throws IOException;
+
     /**
      * Добавление изображения.
      *
-     * @param image Массив байт изображения.
-     * @param id    Уникальный идентификатор изображения.
+     * @param content   Содержимое изображения. Временный файл переходит во владение сервиса.
+     * @param id        Уникальный идентификатор изображения.
      * @return Успешность операции.
+     * @throws IOException Ошибка записи в хранилище.
      */
-    boolean add(final byte[] image, final UUID id);
+    boolean add(final SpooledContent content, final UUID id) throws IOException;
 
     /**
      * Заменя изображения по уникальному идентификатору.
      *
-     * @param newBytes  Новый массив байт изображения.
+     * @param content   Новое содержимое изображения. Временный файл переходит во владение сервиса.
      * @param id        Уникальный идентификатор изображения.
      *                  Если не найден в базе данных, возвращается false.
      * @return Успешность операции.
+     * @throws IOException Ошибка записи в хранилище.
      */
-    boolean changeBytesById(final byte[] newBytes, final UUID id);
+    boolean changeBytesById(final SpooledContent content, final UUID id) throws IOException;
 
     /**
      * Удаление изображения по уникальному идентификатору.
@@ -38,7 +57,8 @@ public interface ImageService {
     boolean deleteById(final UUID id);
 
     /**
-     * Получение изображения по уникальному идентификатору.
+     * Получение метаданных изображения по уникальному идентификатору.
+     * Содержимое изображения не загружается.
      *
      * @param id Уникальный идентификатор.
      *           Если не найден в базе данных, возвращается null.
@@ -47,12 +67,72 @@ public interface ImageService {
     ImageDto getById(final UUID id);
 
     /**
-     * Получение изображения по уникальному идентификатору товара.
+     * Получение метаданных уменьшенной копии изображения.
+     * Если копия еще не создана, она генерируется при вызове.
      *
-     * @param productId         Уникальный идентификатор товара.
-     *                          Если не найден в базе данных, возвращается null.
-     * @param productService    Сервис товаров.
+     * @param id    Уникальный идентификатор оригинала.
+     * @param width Желаемая ширина в пикселях. Округляется вверх до ближайшей поддерживаемой.
+     * @return Объект копии или null, если оригинал не найден.
+     * @throws IllegalArgumentException Оригинал поврежден или слишком велик для уменьшения.
+     */
+    ImageDto getDerivative(final UUID id, final int width) throws IllegalArgumentException;
+
+    /**
+     * Получение метаданных изображения по уникальному идентификатору товара.
+     *
+     * @param productId Уникальный идентификатор товара.
+     *                  Если товар или его изображение не найдены, возвращается null.
      * @return Объект изображения.
      */
-    ImageDto getByProductId(final UUID productId, final ProductService productService);
+    ImageDto getByProductId(final UUID productId);
+
+    /**
+     * Получение метаданных нескольких изображений.
+     * Изображения, отсутствующие в кэше, загружаются одним запросом.
+     *
+     * @param ids Уникальные идентификаторы изображений.
+     * @return Изображения по идентификатору в порядке запроса. Ненайденные изображения отсутствуют.
+     */
+    Map<UUID, ImageDto> getAllById(final Collection<UUID> ids);
+
+    /**
+     * Получение метаданных изображений нескольких товаров.
+     * Изображения, отсутствующие в кэше, загружаются одним запросом с соединением.
+     *
+     * @param productIds Уникальные идентификаторы товаров.
+     * @return Изображения по идентификатору товара в порядке запроса. Товары без изображения отсутствуют.
+     */
+    Map<UUID, ImageDto> getAllByProductId(final Collection<UUID> productIds);
+
+    /**
+     * Потоковая запись диапазона байт изображения.
+     *
+     * @param id        Уникальный идентификатор изображения.
+     * @param offset    Смещение первого байта диапазона.
+     * @param length    Количество байт диапазона.
+     * @param out       Поток, в который записываются байты.
+     * @return Успешность операции. Если изображение не найдено, возвращается false.
+     * @throws IOException Ошибка чтения хранилища или записи в поток.
+     */
+    boolean writeRange(final UUID id, final long offset, final long length,
+                       final OutputStream out) throws IOException;
+
+    /**
+     * Потоковая запись содержимого нескольких изображений в один поток.
+     * Содержимое, отсутствующее в кэше, загружается одним запросом.
+     * Изображения, удаленные после получения метаданных, пропускаются.
+     *
+     * @param images    Метаданные изображений.
+     * @param sink      Получатель, который открывает запись каждого изображения.
+     * @throws IOException Ошибка чтения хранилища или записи в поток.
+     */
+    void writeAll(final List<ImageDto> images, final ImageSink sink) throws IOException;
+
+    /**
+     * Получение файла с содержимым изображения, если оно хранится на диске.
+     *
+     * @param image Объект изображения.
+     * @return Путь к файлу или null, если изображение нужно читать через {@link #writeRange}.
+     */
+    Path resolveFile(final ImageDto image);
 }
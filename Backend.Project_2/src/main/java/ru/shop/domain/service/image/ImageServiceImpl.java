@@ -1,14 +1,33 @@
 package ru.shop.domain.service.image;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.shop.dao.model.ImageBlobEntity;
 import ru.shop.dao.model.ImageEntity;
 import ru.shop.dao.repository.ImageRepository;
 import ru.shop.domain.model.ImageDto;
-import ru.shop.domain.model.ProductDto;
-import ru.shop.domain.service.product.ProductService;
+import ru.shop.domain.service.image.storage.SpooledContent;
 import ru.shop.mapper.ImageMapper;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -16,52 +35,246 @@ import java.util.UUID;
 public class ImageServiceImpl implements ImageService {
 
     private final ImageRepository repository;
+    private final ImageContentStore contents;
+    private final ImageCache cache;
+    private final ImageDerivativeGenerator derivatives;
     private final ImageMapper mapper;
 
+    // Товар -> изображение. Товары меняются в другом сервисе, поэтому устаревание ограничено временем жизни
+    private final Cache<UUID, UUID> productImages;
+
     @Autowired
-    public ImageServiceImpl(ImageRepository imageRepository) {
+    public ImageServiceImpl(ImageRepository imageRepository, ImageContentStore imageContentStore, ImageCache imageCache,
+                            ImageDerivativeGenerator imageDerivativeGenerator,
+                            @Value("${shop.images.product-cache.max-size:10000}") long productCacheSize,
+                            @Value("${shop.images.product-cache.expire-after-write:1m}") Duration productCacheTtl) {
         this.repository = imageRepository;
+        this.contents = imageContentStore;
+        this.cache = imageCache;
+        this.derivatives = imageDerivativeGenerator;
         this.mapper = new ImageMapper();
+        this.productImages = Caffeine.newBuilder()
+                .maximumSize(productCacheSize)
+                .expireAfterWrite(productCacheTtl)
+                .build();
+    }
+
+    @Override
+    public SpooledContent spool(final InputStream content) throws IOException {
+        return SpooledContent.spool(content, contents.spoolDirectory());
     }
 
-    public boolean add(final byte[] image, final UUID id) {
-        ImageDto imageDto = new ImageDto(id, image);
-        repository.save(mapper.toEntity(imageDto, new ImageEntity()));
+    @Override
+    @Transactional
+    public boolean add(final SpooledContent content, final UUID id) throws IOException {
+        Optional<ImageEntity> existing = repository.findById(id);
+        ImageEntity entity = existing.orElseGet(() -> mapper.toEntity(new ImageDto(id, null, null), new ImageEntity()));
+        replaceContent(entity, content);
+        repository.save(entity);
         return true;
     }
 
-    public boolean changeBytesById(final byte[] newBytes, final UUID id) {
-        if (repository.existsById(id) && newBytes != null) {
-            repository.save(new ImageEntity(id, newBytes));
+    @Override
+    @Transactional
+    public boolean changeBytesById(final SpooledContent content, final UUID id) throws IOException {
+        Optional<ImageEntity> image = repository.findById(id);
+        if (image.isPresent()) {
+            replaceContent(image.get(), content);
             return true;
         } else {
+            content.delete();
             return false;
         }
     }
 
+    @Override
+    @Transactional
     public boolean deleteById(final UUID id) {
-        if (repository.existsById(id)) {
-            repository.deleteById(id);
+        Optional<ImageEntity> image = repository.findById(id);
+        if (image.isPresent()) {
+            contents.detach(image.get().getContentHash());
+            repository.delete(image.get());
+            cache.invalidate(id);
+            derivatives.deleteAll(id);
             return true;
         } else {
             return false;
         }
     }
 
+    @Override
     public ImageDto getById(final UUID id) {
+        CachedImage cached = cache.get(id);
+        if (cached != null) {
+            return cached.toDto();
+        }
         Optional<ImageEntity> image = repository.findById(id);
-        return image.map(entity -> mapper
-                .toDto(entity, new ImageDto())).orElse(null);
+        return image.map(entity -> cache.put(mapper
+                .toDto(entity, new ImageDto())).toDto()).orElse(null);
     }
 
-    public ImageDto getByProductId(final UUID productId,
-                                   final ProductService productService) {
-        ProductDto product = productService.getById(productId);
-        if (product != null) {
-            UUID imageId = product.getImageId();
-            return getById(imageId);
-        } else {
+    @Override
+    public ImageDto getDerivative(final UUID id, final int width) throws IllegalArgumentException {
+        return derivatives.getOrCreate(id, width);
+    }
+
+    // Товар и изображение читаются одним запросом с соединением, без загрузки товара целиком
+    @Override
+    public ImageDto getByProductId(final UUID productId) {
+        UUID imageId = productImages.getIfPresent(productId);
+        if (imageId != null) {
+            ImageDto image = getById(imageId);
+            if (image != null) {
+                return image;
+            }
+            productImages.invalidate(productId);  // изображение удалено
+        }
+        Optional<ImageEntity> image = repository.findByProductId(productId);
+        if (image.isEmpty()) {
             return null;
         }
+        productImages.put(productId, image.get().getId());
+        return cache.put(mapper.toDto(image.get(), new ImageDto())).toDto();
+    }
+
+    @Override
+    public Map<UUID, ImageDto> getAllById(final Collection<UUID> ids) {
+        Map<UUID, ImageDto> images = new LinkedHashMap<>();
+        List<UUID> missing = new ArrayList<>();
+        for (UUID id : ids) {
+            CachedImage cached = cache.get(id);
+            if (cached != null) {
+                images.put(id, cached.toDto());
+            } else {
+                images.put(id, null);  // сохраняет порядок запроса
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (ImageEntity entity : repository.findAllById(missing)) {
+                images.put(entity.getId(), cache.put(mapper.toDto(entity, new ImageDto())).toDto());
+            }
+        }
+        images.values().removeIf(Objects::isNull);
+        return images;
+    }
+
+    @Override
+    public Map<UUID, ImageDto> getAllByProductId(final Collection<UUID> productIds) {
+        Map<UUID, ImageDto> images = new LinkedHashMap<>();
+        List<UUID> missing = new ArrayList<>();
+        for (UUID productId : productIds) {
+            UUID imageId = productImages.getIfPresent(productId);
+            CachedImage cached = imageId != null ? cache.get(imageId) : null;
+            if (cached != null) {
+                images.put(productId, cached.toDto());
+            } else {
+                images.put(productId, null);  // сохраняет порядок запроса
+                missing.add(productId);
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (Object[] row : repository.findAllByProductIdIn(missing)) {
+                UUID productId = (UUID) row[0];
+                ImageEntity entity = (ImageEntity) row[1];
+                productImages.put(productId, entity.getId());
+                images.put(productId, cache.put(mapper.toDto(entity, new ImageDto())).toDto());
+            }
+        }
+        images.values().removeIf(Objects::isNull);
+        return images;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public boolean writeRange(final UUID id, final long offset, final long length,
+                              final OutputStream out) throws IOException {
+        ImageDto image = getById(id);
+        if (image == null) {
+            return false;
+        }
+        ByteBuffer cached = cache.getContent(image.getContentHash());
+        if (cached != null) {
+            ImageCache.writeRange(cached, offset, length, out);
+            return true;
+        }
+        Optional<ImageBlobEntity> blob = contents.find(image.getContentHash());
+        if (blob.isEmpty()) {
+            return false;  // изображение удалено после получения метаданных
+        }
+        writeContent(image, blob.get(), offset, length, out);
+        return true;
+    }
+
+    // Соединение с базой данных удерживается до конца записи всех изображений: LOB читается потоком
+    @Override
+    @Transactional(readOnly = true)
+    public void writeAll(final List<ImageDto> images, final ImageSink sink) throws IOException {
+        List<String> uncached = images.stream()
+                .map(ImageDto::getContentHash)
+                .filter(hash -> cache.getContent(hash) == null)
+                .distinct()
+                .toList();
+        Map<String, ImageBlobEntity> blobs = contents.findAll(uncached);
+        for (int i = 0; i < images.size(); i++) {
+            ImageDto image = images.get(i);
+            ByteBuffer cached = cache.getContent(image.getContentHash());
+            if (cached != null) {
+                ImageCache.writeRange(cached, 0, image.getSize(), sink.open(i, image));
+                continue;
+            }
+            ImageBlobEntity blob = blobs.get(image.getContentHash());
+            if (blob != null) {
+                writeContent(image, blob, 0, image.getSize(), sink.open(i, image));
+            }
+        }
+    }
+
+    @Override
+    public Path resolveFile(final ImageDto image) {
+        return contents.resolveFile(image.getContentHash());
+    }
+
+    // Содержимое кэшируется по хэшу, поэтому одинаковые изображения читаются из хранилища один раз
+    private void writeContent(final ImageDto image, final ImageBlobEntity blob, final long offset,
+                              final long length, final OutputStream out) throws IOException {
+        if (cache.fitsContent(image.getSize())) {
+            // небольшое изображение читается целиком один раз и дальше отдается из кэша
+            ByteArrayOutputStream content = new ByteArrayOutputStream(image.getSize().intValue());
+            contents.writeRange(blob, 0, image.getSize(), content);
+            ImageCache.writeRange(cache.putContent(image.getContentHash(), content.toByteArray()),
+                    offset, length, out);
+        } else {
+            contents.writeRange(blob, offset, length, out);
+        }
+    }
+
+    // Новая ссылка добавляется до удаления старой: при загрузке того же содержимого счетчик не обнуляется.
+    // Копии пересоздаются, только если содержимое действительно изменилось
+    private void replaceContent(final ImageEntity entity, final SpooledContent content) throws IOException {
+        String previousHash = entity.getContentHash();
+        contents.lock(content.hash(), previousHash);
+        String hash = contents.attach(content);
+        entity.setContentHash(hash);
+        entity.setSize(content.size());
+        cache.invalidate(entity.getId());
+        if (previousHash != null) {
+            contents.detach(previousHash);
+            if (previousHash.equals(hash)) {
+                return;
+            }
+            derivatives.deleteAll(entity.getId());
+        }
+        scheduleDerivatives(entity.getId());
+    }
+
+    // Копии генерируются после фиксации, когда новое содержимое оригинала уже видно другим транзакциям
+    private void scheduleDerivatives(final UUID id) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                derivatives.scheduleAll(id);
+            }
+        });
     }
 }
@@ -0,0 +1,25 @@
+package ru.shop.domain.service.image;
+
+import ru.shop.domain.model.ImageDto;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Получатель содержимого нескольких изображений, записываемых в один поток.
+ */
+@FunctionalInterface
+public interface ImageSink {
+
+    /**
+     * Начало очередного изображения.
+     * Вызывается перед записью содержимого, например для заголовков части ответа.
+     *
+     * @param index Индекс изображения в переданном списке.
+     * @param image Метаданные изображения.
+     * @return Поток, в который записывается содержимое.
+     * @throws IOException Ошибка записи в поток.
+     */
+    OutputStream open(final int index, final ImageDto image) throws IOException;
+
+}
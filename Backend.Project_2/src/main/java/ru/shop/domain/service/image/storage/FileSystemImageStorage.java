@@ -0,0 +1,131 @@
+package ru.shop.domain.service.image.storage;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.shop.dao.model.ImageBlobEntity;
+import ru.shop.dao.repository.ImageBlobRepository;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Контентно-адресуемое хранение изображений на локальном диске.
+ * Файл называется SHA-256 своего содержимого и лежит в каталоге root/ab/cd/,
+ * где ab и cd — первые байты хэша.
+ * Строки, еще не перенесенные из базы данных, читаются через {@link JpaImageStorage}.
+ */
+public class FileSystemImageStorage implements ImageStorage {
+
+    private final Path root;
+    private final Path tmp;
+    private final ImageBlobRepository repository;
+    private final JpaImageStorage databaseStorage;
+    private final TransactionTemplate transactionTemplate;
+
+    public FileSystemImageStorage(Path root, ImageBlobRepository imageBlobRepository,
+                                  JpaImageStorage databaseStorage,
+                                  TransactionTemplate transactionTemplate) throws IOException {
+        this.root = root.toAbsolutePath().normalize();
+        this.tmp = Files.createDirectories(this.root.resolve("tmp"));
+        this.repository = imageBlobRepository;
+        this.databaseStorage = databaseStorage;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    // Временный файл лежит в том же каталоге, поэтому переименовывается в адрес по содержимому атомарно.
+    // Файл может остаться от строки, удаление которой еще не дошло до диска, поэтому заменяется
+    @Override
+    public void write(final ImageBlobEntity blob, final SpooledContent content) throws IOException {
+        Path target = path(content.hash());
+        Files.createDirectories(target.getParent());
+        Files.move(content.file(), target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        blob.setBytes(null);
+    }
+
+    @Override
+    public void writeRange(final ImageBlobEntity blob, final long offset, final long length,
+                           final OutputStream out) throws IOException {
+        if (blob.getBytes() != null) {
+            databaseStorage.writeRange(blob, offset, length, out);  // строка еще не перенесена на диск
+            return;
+        }
+        // Поток ответа не файловый канал, поэтому transferTo копирует через буфер обертки, а не sendfile.
+        // Без копирования через JVM файл отдает только коннектор по resolveFile
+        try (FileChannel channel = FileChannel.open(path(blob.getHash()), StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(out);
+            long position = offset;
+            long remaining = length;
+            while (remaining > 0) {
+                long transferred = channel.transferTo(position, remaining, target);
+                if (transferred <= 0) {
+                    throw new IOException("Файл " + blob.getHash() + " короче ожидаемого");
+                }
+                position += transferred;
+                remaining -= transferred;
+            }
+        }
+    }
+
+    // Файл удаляется только после фиксации транзакции, удалившей строку: при откате он еще нужен
+    @Override
+    public void release(final ImageBlobEntity blob) {
+        if (blob.getBytes() != null) {
+            databaseStorage.release(blob);
+            return;
+        }
+        String hash = blob.getHash();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    deleteIfUnreferenced(hash);
+                }
+            });
+        } else {
+            deleteIfUnreferenced(hash);
+        }
+    }
+
+    @Override
+    public Path resolveFile(final String contentHash) {
+        if (contentHash == null) {
+            return null;
+        }
+        Path file = path(contentHash);
+        return Files.isReadable(file) ? file : null;
+    }
+
+    @Override
+    public Path spoolDirectory() {
+        return tmp;
+    }
+
+    // Под блокировкой хэша: загрузка того же содержимого, начатая после удаления строки,
+    // либо уже создала строку заново, либо дождется удаления файла и запишет его снова
+    private void deleteIfUnreferenced(final String hash) {
+        transactionTemplate.executeWithoutResult(status -> {
+            repository.lock(hash);
+            if (!repository.existsById(hash)) {
+                try {
+                    Files.deleteIfExists(path(hash));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        });
+    }
+
+    private Path path(final String hash) {
+        return root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+}
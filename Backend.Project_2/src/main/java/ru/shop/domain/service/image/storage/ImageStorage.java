@@ -0,0 +1,77 @@
+package ru.shop.domain.service.image.storage;
+
+import ru.shop.dao.model.ImageBlobEntity;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+
+public interface ImageStorage {
+
+    /**
+     * Сохранение содержимого из потока.
+     * Поток сначала записывается во временный файл, чтобы хэш был известен до записи в хранилище.
+     * Поток другой длины не попадает в хранилище: усеченная копия иначе заменила бы исходное содержимое.
+     *
+     * @param blob      Сущность содержимого.
+     * @param content   Поток байт изображения.
+     * @param size      Ожидаемый размер изображения в байтах.
+     * @throws IOException Ошибка чтения потока, записи в хранилище или размер потока не равен size.
+     */
+    default void write(final ImageBlobEntity blob, final InputStream content, final long size) throws IOException {
+        SpooledContent spooled = SpooledContent.spool(content, spoolDirectory());
+        if (spooled.size() != size) {
+            spooled.delete();
+            throw new IOException("Прочитано байт: " + spooled.size() + ", ожидалось: " + size);
+        }
+        write(blob, spooled);
+    }
+
+    /**
+     * Сохранение содержимого.
+     * Хранилище записывает на сущность расположение содержимого.
+     * Вызывается внутри транзакции, в которой сохраняется новая сущность.
+     *
+     * @param blob      Новая сущность содержимого.
+     * @param content   Содержимое во временном файле. Файл переходит во владение хранилища.
+     * @throws IOException Ошибка записи в хранилище.
+     */
+    void write(final ImageBlobEntity blob, final SpooledContent content) throws IOException;
+
+    /**
+     * Потоковая запись диапазона байт содержимого.
+     *
+     * @param blob      Сущность содержимого.
+     * @param offset    Смещение первого байта диапазона.
+     * @param length    Количество байт диапазона.
+     * @param out       Поток, в который записываются байты.
+     * @throws IOException Ошибка чтения хранилища или записи в поток.
+     */
+    void writeRange(final ImageBlobEntity blob, final long offset, final long length,
+                    final OutputStream out) throws IOException;
+
+    /**
+     * Освобождение содержимого.
+     * Вызывается перед удалением сущности, когда на содержимое не осталось ссылок.
+     *
+     * @param blob Сущность содержимого.
+     */
+    void release(final ImageBlobEntity blob);
+
+    /**
+     * Получение файла с содержимым изображения, который коннектор может отдать через sendfile.
+     *
+     * @param contentHash SHA-256 содержимого.
+     * @return Путь к файлу или null, если хранилище не файловое или файла нет.
+     */
+    Path resolveFile(final String contentHash);
+
+    /**
+     * Каталог временных файлов для записи входящих изображений.
+     *
+     * @return Путь к каталогу.
+     */
+    Path spoolDirectory();
+
+}
@@ -0,0 +1,36 @@
+package ru.shop.domain.service.image.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.shop.dao.repository.ImageBlobRepository;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+@Configuration
+public class ImageStorageConfig {
+
+    // Реализация выбирается свойством shop.images.storage.type: jpa (по умолчанию) или filesystem
+    @Bean
+    public ImageStorage imageStorage(@Value("${shop.images.storage.type:jpa}") String type,
+                                     @Value("${shop.images.storage.root:./data/images}") Path root,
+                                     @Value("${shop.images.storage.spool:${java.io.tmpdir}/shop-images}") Path spool,
+                                     ImageBlobRepository imageBlobRepository,
+                                     PlatformTransactionManager transactionManager) throws IOException {
+        JpaImageStorage databaseStorage = new JpaImageStorage(imageBlobRepository, spool);
+        // Файлы удаляются после фиксации вызывающей транзакции, поэтому в собственной транзакции
+        TransactionTemplate cleanupTransaction = new TransactionTemplate(transactionManager);
+        cleanupTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return switch (type) {
+            case "jpa" -> databaseStorage;
+            case "filesystem" -> new FileSystemImageStorage(root, imageBlobRepository, databaseStorage,
+                    cleanupTransaction);
+            default -> throw new IllegalStateException("Неизвестный тип хранилища изображений: " + type);
+        };
+    }
+
+}
@@ -0,0 +1,83 @@
+package ru.shop.domain.service.image.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.shop.dao.model.ImageBlobEntity;
+import ru.shop.dao.repository.ImageBlobRepository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Фоновый перенос содержимого изображений из таблицы image_blob в файловое хранилище.
+ * Каждая строка переносится в своей транзакции под блокировкой хэша, поэтому приложение
+ * продолжает обслуживать запросы: еще не перенесенные строки читаются из базы данных.
+ */
+@Component
+@ConditionalOnProperty(name = "shop.images.storage.migrate", havingValue = "true")
+public class ImageStorageMigrator {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageStorageMigrator.class);
+
+    private final ImageBlobRepository repository;
+    private final ImageStorage storage;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    @Autowired
+    public ImageStorageMigrator(ImageBlobRepository imageBlobRepository, ImageStorage imageStorage,
+                                TransactionTemplate transactionTemplate,
+                                @Value("${shop.images.storage.migrate-batch-size:100}") int batchSize) {
+        this.repository = imageBlobRepository;
+        this.storage = imageStorage;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${shop.images.storage.migrate-delay:5000}")
+    public void migrateBatch() {
+        if (!(storage instanceof FileSystemImageStorage fileStorage)) {
+            return;  // переносить некуда, содержимое уже хранится в базе данных
+        }
+        List<String> hashes = repository.findHashesStoredInDatabase(PageRequest.of(0, batchSize));
+        for (String hash : hashes) {
+            transactionTemplate.executeWithoutResult(status -> migrate(fileStorage, hash));
+        }
+        if (!hashes.isEmpty()) {
+            log.info("Перенесено изображений в файловое хранилище: {}", hashes.size());
+        }
+    }
+
+    private void migrate(final FileSystemImageStorage fileStorage, final String hash) {
+        repository.lock(hash);
+        Optional<ImageBlobEntity> blob = repository.findById(hash);
+        if (blob.isEmpty() || blob.get().getBytes() == null) {
+            return;  // строка удалена или уже перенесена
+        }
+        ImageBlobEntity entity = blob.get();
+
+        // Копия пишется в отдельную сущность, чтобы освободить LOB по еще не измененной строке
+        ImageBlobEntity moved = new ImageBlobEntity(hash, entity.getSize());
+        try (InputStream in = entity.getBytes().getBinaryStream()) {
+            fileStorage.write(moved, in, entity.getSize());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Не удалось прочитать содержимое " + hash, e);
+        }
+        storage.release(entity);
+        entity.setBytes(null);
+    }
+
+}
@@ -0,0 +1,80 @@
+package ru.shop.domain.service.image.storage;
+
+import org.hibernate.engine.jdbc.BlobProxy;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.shop.dao.model.ImageBlobEntity;
+import ru.shop.dao.repository.ImageBlobRepository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+
+/**
+ * Хранение содержимого изображений в таблице image_blob в виде PostgreSQL Large Object.
+ */
+public class JpaImageStorage implements ImageStorage {
+
+    private final ImageBlobRepository repository;
+    private final Path spoolDirectory;
+
+    public JpaImageStorage(ImageBlobRepository imageBlobRepository, Path spoolDirectory) throws IOException {
+        this.repository = imageBlobRepository;
+        this.spoolDirectory = Files.createDirectories(spoolDirectory);
+    }
+
+    // Файл читается драйвером при flush, поэтому закрывается и удаляется после завершения транзакции
+    @Override
+    public void write(final ImageBlobEntity blob, final SpooledContent content) throws IOException {
+        InputStream in = Files.newInputStream(content.file());
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                try (in) {
+                    content.delete();
+                } catch (IOException ignored) {
+                    // временный файл будет удален вместе с каталогом временных файлов
+                }
+            }
+        });
+        blob.setBytes(BlobProxy.generateProxy(in, content.size()));
+    }
+
+    // LOB доступен только внутри транзакции, в которой загружена сущность
+    @Override
+    public void writeRange(final ImageBlobEntity blob, final long offset, final long length,
+                           final OutputStream out) throws IOException {
+        if (blob.getBytes() == null) {
+            throw new IOException("Содержимое " + blob.getHash() + " отсутствует в базе данных");
+        }
+        if (length == 0) {
+            return;
+        }
+        try (InputStream in = blob.getBytes().getBinaryStream(offset + 1, length)) {
+            in.transferTo(out);
+        } catch (SQLException e) {
+            throw new IOException("Не удалось прочитать содержимое " + blob.getHash(), e);
+        }
+    }
+
+    @Override
+    public void release(final ImageBlobEntity blob) {
+        if (blob.getBytes() != null) {
+            repository.unlinkBytes(blob.getHash());
+        }
+    }
+
+    @Override
+    public Path resolveFile(final String contentHash) {
+        return null;
+    }
+
+    @Override
+    public Path spoolDirectory() {
+        return spoolDirectory;
+    }
+
+}
@@ -0,0 +1,56 @@
+package ru.shop.domain.service.image.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Содержимое изображения, записанное во временный файл.
+ * Размер и SHA-256 известны до записи в хранилище, а память не зависит от размера изображения.
+ *
+ * @param file  Временный файл. Принадлежит хранилищу, в которое передано содержимое.
+ * @param size  Размер содержимого в байтах.
+ * @param hash  SHA-256 содержимого в шестнадцатеричном виде.
+ */
+public record SpooledContent(Path file, long size, String hash) {
+
+    /**
+     * Запись потока во временный файл с подсчетом хэша.
+     *
+     * @param content   Поток байт изображения. Не закрывается.
+     * @param directory Каталог временных файлов.
+     * @return Записанное содержимое.
+     * @throws IOException Ошибка чтения потока или записи файла.
+     */
+    public static SpooledContent spool(final InputStream content, final Path directory) throws IOException {
+        MessageDigest digest = sha256();
+        Path file = Files.createTempFile(directory, "upload-", ".part");
+        long size;
+        try (OutputStream out = Files.newOutputStream(file)) {
+            size = new DigestInputStream(content, digest).transferTo(out);
+        } catch (IOException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        return new SpooledContent(file, size, HexFormat.of().formatHex(digest.digest()));
+    }
+
+    public static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);  // SHA-256 обязателен для любой JVM
+        }
+    }
+
+    public void delete() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+}
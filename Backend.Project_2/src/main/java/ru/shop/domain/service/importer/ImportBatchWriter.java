@@ -0,0 +1,131 @@
+package ru.shop.domain.service.importer;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.shop.domain.model.ImportErrorDto;
+import ru.shop.domain.model.ImportReportDto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Пакетная запись строк массовой загрузки и отчет о ней.
+ * Строки накапливаются до batchSize и сохраняются через persist без предварительного select,
+ * каждый пакет в своей транзакции и одним пакетом JDBC. Если пакет отклонен базой данных,
+ * он делится пополам до отдельных строк, так что ошибочные строки отсекаются
+ * за логарифмическое число повторных транзакций. Память ограничена одним пакетом.
+ * Экземпляр создается на одну загрузку и не потокобезопасен.
+ *
+ * @param <T> Тип загружаемой записи.
+ */
+public class ImportBatchWriter<T> {
+
+    private final EntityManager entityManager;
+    private final TransactionTemplate writeTransaction;
+    private final Function<T, List<?>> toEntities;
+    private final Consumer<List<T>> afterCommit;
+    private final int batchSize;
+    private final int maxErrors;
+    private final List<Row<T>> batch;
+    private final ImportReportDto report = new ImportReportDto();
+
+    /**
+     * @param entityManager     Контекст сохранения, связанный с транзакциями writeTransaction.
+     * @param writeTransaction  Шаблон транзакции одного пакета.
+     * @param toEntities        Сущности одной записи в порядке сохранения.
+     * @param afterCommit       Действие с записями зафиксированного пакета.
+     * @param batchSize         Количество записей в пакете.
+     * @param maxErrors         Количество отклоненных строк, попадающих в отчет.
+     */
+    public ImportBatchWriter(EntityManager entityManager, TransactionTemplate writeTransaction,
+                             Function<T, List<?>> toEntities, Consumer<List<T>> afterCommit,
+                             int batchSize, int maxErrors) {
+        this.entityManager = entityManager;
+        this.writeTransaction = writeTransaction;
+        this.toEntities = toEntities;
+        this.afterCommit = afterCommit;
+        this.batchSize = batchSize;
+        this.maxErrors = maxErrors;
+        this.batch = new ArrayList<>(batchSize);
+    }
+
+    /**
+     * Добавление проверенной записи; заполненный пакет сохраняется сразу.
+     *
+     * @param line      Номер строки в теле запроса.
+     * @param record    Запись.
+     */
+    public void add(final long line, final T record) {
+        batch.add(new Row<>(line, record));
+        if (batch.size() == batchSize) {
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Учет строки, не прошедшей разбор или проверку.
+     *
+     * @param line  Номер строки в теле запроса.
+     * @param error Причина отказа.
+     */
+    public void reject(final long line, final String error) {
+        report.setFailed(report.getFailed() + 1);
+        if (report.getErrors().size() < maxErrors) {
+            report.getErrors().add(new ImportErrorDto(line, error));
+        }
+    }
+
+    /**
+     * Сохранение неполного последнего пакета.
+     *
+     * @return Отчет о загрузке.
+     */
+    public ImportReportDto finish() {
+        write(batch);
+        batch.clear();
+        return report;
+    }
+
+    private void write(final List<Row<T>> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        try {
+            writeTransaction.executeWithoutResult(status -> persist(rows));
+        } catch (RuntimeException e) {
+            if (rows.size() == 1) {
+                reject(rows.get(0).line(),
+                        "Запись не сохранена: " + NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+            } else {
+                // Транзакция пакета откачена целиком, повторяем половины до отдельных ошибочных строк
+                int middle = rows.size() / 2;
+                write(rows.subList(0, middle));
+                write(rows.subList(middle, rows.size()));
+            }
+            return;
+        }
+        afterCommit.accept(rows.stream().map(Row::record).toList());
+        report.setImported(report.getImported() + rows.size());
+    }
+
+    private void persist(final List<Row<T>> rows) {
+        // Весь пакет уходит одним пакетом JDBC вместо batch_size из настроек Hibernate
+        entityManager.unwrap(Session.class).setJdbcBatchSize(batchSize);
+        for (Row<T> row : rows) {
+            for (Object entity : toEntities.apply(row.record())) {
+                entityManager.persist(entity);
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();  // не держим сохраненные сущности в контексте до конца транзакции
+    }
+
+    private record Row<T>(long line, T record) {
+    }
+
+}
@@ -0,0 +1,22 @@
+package ru.shop.domain.service.order;
+
+import org.springframework.stereotype.Service;
+import ru.shop.domain.model.OrderDto;
+import ru.shop.domain.model.ProductDto;
+
+import java.util.List;
+
+@Service
+public interface OrderService {
+
+    /**
+     * Резервирование товаров заказа: уменьшение количества на складе по всем позициям.
+     * Выполняется в одной транзакции: если хотя бы одной позиции не хватает, ни один товар не списывается.
+     *
+     * @param order Заказ. Позиции одного товара суммируются.
+     * @return Обновленные товары или null, если какой-либо товар не найден.
+     * @throws IllegalArgumentException Некорректные позиции или недостаточно товара на складе
+     */
+    List<ProductDto> reserve(final OrderDto order) throws IllegalArgumentException;
+
+}
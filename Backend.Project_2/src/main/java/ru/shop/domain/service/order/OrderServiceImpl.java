@@ -0,0 +1,119 @@
+package ru.shop.domain.service.order;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.shop.dao.model.ProductEntity;
+import ru.shop.dao.repository.ProductRepository;
+import ru.shop.domain.model.OrderDto;
+import ru.shop.domain.model.OrderLineDto;
+import ru.shop.domain.model.ProductDto;
+import ru.shop.domain.service.product.ProductCache;
+import ru.shop.domain.service.product.stock.HotStockRegistry;
+import ru.shop.mapper.ProductMapper;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+@Service
+public class OrderServiceImpl implements OrderService {
+
+    private final ProductRepository repository;
+    private final ProductCache cache;
+    private final HotStockRegistry hotStock;
+    private final ProductMapper mapper;
+
+    @Autowired
+    public OrderServiceImpl(ProductRepository productRepository, ProductCache productCache,
+                            HotStockRegistry hotStockRegistry) {
+        this.repository = productRepository;
+        this.cache = productCache;
+        this.hotStock = hotStockRegistry;
+        this.mapper = new ProductMapper();
+    }
+
+    // Строки блокируются одним запросом в порядке id, поэтому параллельные заказы берут блокировки
+    // в одном порядке и не взаимоблокируются. Изменения отправляются одним пакетом UPDATE при фиксации
+    @Override
+    @Transactional
+    public List<ProductDto> reserve(final OrderDto order) throws IllegalArgumentException {
+        Map<UUID, Integer> amounts = amountsByProduct(order);
+        Map<UUID, Integer> hotAmounts = new HashMap<>();
+        for (UUID id : List.copyOf(amounts.keySet())) {
+            if (hotStock.isHot(id)) {
+                hotAmounts.put(id, amounts.remove(id));
+            }
+        }
+
+        List<ProductEntity> products = repository.findAllByIdInOrderByIdAsc(amounts.keySet());
+        if (products.size() != amounts.size()) {
+            return null;
+        }
+        for (ProductEntity product : products) {
+            if (amounts.get(product.getId()) > product.getAvailableStock()) {
+                throw new IllegalArgumentException("amount must be > 0 and < availableStock");
+            }
+        }
+        reserveHot(hotAmounts);
+        for (ProductEntity product : products) {
+            product.setAvailableStock(product.getAvailableStock() - amounts.get(product.getId()));
+        }
+        cache.invalidate(amounts.keySet());
+
+        List<ProductDto> reserved = new ArrayList<>();
+        for (ProductEntity entity : products) {
+            reserved.add(mapper.toDto(entity, new ProductDto()));
+        }
+        repository.findAllById(hotAmounts.keySet())
+                .forEach(entity -> reserved.add(hotStock.overlay(mapper.toDto(entity, new ProductDto()))));
+        return reserved;
+    }
+
+    // Горячие товары списываются в памяти после проверки остальных позиций. Списание возвращается,
+    // если не хватает следующей позиции или транзакция заказа откатывается
+    private void reserveHot(final Map<UUID, Integer> hotAmounts) {
+        Map<UUID, Integer> reserved = new HashMap<>();
+        for (Map.Entry<UUID, Integer> line : hotAmounts.entrySet()) {
+            if (!hotStock.tryReserve(line.getKey(), line.getValue())) {
+                reserved.forEach(hotStock::release);
+                throw new IllegalArgumentException("amount must be > 0 and < availableStock");
+            }
+            reserved.put(line.getKey(), line.getValue());
+        }
+        if (!reserved.isEmpty()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        reserved.forEach(hotStock::release);
+                    }
+                }
+            });
+        }
+    }
+
+    private static Map<UUID, Integer> amountsByProduct(final OrderDto order) {
+        if (order == null || order.getLines() == null || order.getLines().isEmpty()) {
+            throw new IllegalArgumentException("order must contain lines");
+        }
+        Map<UUID, Integer> amounts = new HashMap<>();
+        for (OrderLineDto line : order.getLines()) {
+            if (line == null || line.getProductId() == null || line.getAmount() == null || line.getAmount() < 1) {
+                throw new IllegalArgumentException("amount must be > 0 and < availableStock");
+            }
+            try {
+                amounts.merge(line.getProductId(), line.getAmount(), Math::addExact);
+            } catch (ArithmeticException e) {
+                // сумма повторяющихся строк больше int заведомо больше любого остатка
+                throw new IllegalArgumentException("amount must be > 0 and < availableStock");
+            }
+        }
+        return amounts;
+    }
+
+}
@@ -0,0 +1,96 @@
+package ru.shop.domain.service.product;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.shop.dao.model.ProductEntity;
+import ru.shop.dao.repository.ProductRepository;
+import ru.shop.domain.model.ProductDto;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Кэш товаров с загрузкой при промахе.
+ * Параллельные промахи по одному товару выполняют один запрос к базе данных, остальные ждут его результат.
+ * Записи неизменяемы, каждый вызов получает свою копию объекта товара.
+ * При изменении товара запись только удаляется, а не заменяется новой строкой: параллельные изменения
+ * могут завершиться в другом порядке, и последним в кэш попал бы устаревший снимок.
+ */
+@Component
+public class ProductCache {
+
+    private final LoadingCache<UUID, Snapshot> cache;
+
+    @Autowired
+    public ProductCache(ProductRepository productRepository,
+                        @Value("${shop.products.cache.max-size:10000}") long maxSize,
+                        @Value("${shop.products.cache.expire-after-write:30s}") Duration expireAfterWrite,
+                        MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(expireAfterWrite)  // верхняя граница устаревания при изменении в обход сервиса
+                .recordStats()
+                .build(id -> productRepository.findById(id).map(Snapshot::of).orElse(null));
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "products");
+    }
+
+    /**
+     * Получение товара из кэша или базы данных.
+     *
+     * @param id Уникальный идентификатор товара.
+     * @return Копия товара или null, если товар не найден.
+     */
+    public ProductDto get(final UUID id) {
+        Snapshot snapshot = cache.get(id);
+        return snapshot != null ? snapshot.toDto() : null;
+    }
+
+    // Повторная инвалидация после фиксации не дает читателю вернуть в кэш строку,
+    // прочитанную до фиксации изменяющей транзакции
+    public void invalidate(final Collection<UUID> ids) {
+        cache.invalidateAll(ids);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.invalidateAll(ids);
+                }
+            });
+        }
+    }
+
+    private record Snapshot(UUID id, String name, String category, BigDecimal price, Integer availableStock,
+                            LocalDate lastUpdateDate, UUID supplierId, UUID imageId) {
+
+        static Snapshot of(final ProductEntity entity) {
+            return new Snapshot(entity.getId(), entity.getName(), entity.getCategory(), entity.getPrice(),
+                    entity.getAvailableStock(), entity.getLastUpdateDate(), entity.getSupplierId(),
+                    entity.getImageId());
+        }
+
+        ProductDto toDto() {
+            ProductDto dto = new ProductDto();
+            dto.setId(id);
+            dto.setName(name);
+            dto.setCategory(category);
+            dto.setPrice(price);
+            dto.setAvailableStock(availableStock);
+            dto.setLastUpdateDate(lastUpdateDate);
+            dto.setSupplierId(supplierId);
+            dto.setImageId(imageId);
+            return dto;
+        }
+
+    }
+
+}
@@ -0,0 +1,40 @@
+package ru.shop.domain.service.product;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Позиция последнего товара страницы: id и, при сортировке по цене, цена.
+ * Передается клиенту как непрозрачная строка base64url.
+ *
+ * @param id    Уникальный идентификатор товара.
+ * @param price Цена товара или null при сортировке по id.
+ */
+record ProductCursor(UUID id, BigDecimal price) {
+
+    String encode() {
+        byte[] priceBytes = price != null ? price.toPlainString().getBytes(StandardCharsets.US_ASCII) : new byte[0];
+        ByteBuffer bytes = ByteBuffer.allocate(16 + priceBytes.length)
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits())
+                .put(priceBytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.array());
+    }
+
+    static ProductCursor decode(final String cursor) throws IllegalArgumentException {
+        byte[] bytes = Base64.getUrlDecoder().decode(cursor);
+        if (bytes.length < 16) {
+            throw new IllegalArgumentException("invalid cursor");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        UUID id = new UUID(buffer.getLong(), buffer.getLong());
+        BigDecimal price = bytes.length > 16
+                ? new BigDecimal(new String(bytes, 16, bytes.length - 16, StandardCharsets.US_ASCII))
+                : null;  // NumberFormatException — подкласс IllegalArgumentException
+        return new ProductCursor(id, price);
+    }
+
+}
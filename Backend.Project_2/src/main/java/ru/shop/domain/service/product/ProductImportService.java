@@ -0,0 +1,26 @@
+package ru.shop.domain.service.product;
+
+import ru.shop.domain.model.ImportFormat;
+import ru.shop.domain.model.ImportReportDto;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public interface ProductImportService {
+
+    /**
+     * Массовая загрузка товаров из потока.
+     * Строки проверяются по тем же правилам, что и при добавлении одного товара,
+     * и сохраняются пакетами, каждый пакет в своей транзакции. Ошибочные строки
+     * не мешают сохранению остальных и попадают в отчет.
+     *
+     * @param content   Тело запроса в кодировке UTF-8.
+     * @param format    Формат тела запроса.
+     * @return Количество сохраненных и отклоненных строк с причинами отказа.
+     * @throws IllegalArgumentException Неизвестное поле в заголовке CSV
+     * @throws IOException              Ошибка чтения тела запроса, уже сохраненные пакеты остаются в базе данных
+     */
+    ImportReportDto importProducts(final InputStream content, final ImportFormat format)
+            throws IllegalArgumentException, IOException;
+
+}
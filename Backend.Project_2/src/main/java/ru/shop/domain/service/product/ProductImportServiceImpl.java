@@ -0,0 +1,196 @@
+package ru.shop.domain.service.product;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.shop.dao.model.ProductEntity;
+import ru.shop.domain.model.ImportFormat;
+import ru.shop.domain.model.ImportReportDto;
+import ru.shop.domain.model.ProductDto;
+import ru.shop.domain.service.importer.ImportBatchWriter;
+import ru.shop.domain.service.product.search.ProductSearchIndex;
+import ru.shop.domain.service.product.stock.HotStockRegistry;
+import ru.shop.mapper.ProductMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Массовая загрузка товаров из NDJSON или CSV.
+ * Строки разбираются и проверяются по одной, сохраняются пакетами {@link ImportBatchWriter}.
+ */
+@Service
+public class ProductImportServiceImpl implements ProductImportService {
+
+    private static final List<String> CSV_COLUMNS = List.of("id", "name", "category", "price",
+            "availableStock", "lastUpdateDate", "supplierId", "imageId");
+
+    private final EntityManager entityManager;
+    private final TransactionTemplate writeTransaction;
+    private final ProductSearchIndex searchIndex;
+    private final HotStockRegistry hotStock;
+    private final ObjectReader jsonReader;
+    private final ProductMapper mapper;
+    private final int batchSize;
+    private final int maxErrors;
+
+    @Autowired
+    public ProductImportServiceImpl(EntityManager entityManager, PlatformTransactionManager transactionManager,
+                                    ProductSearchIndex productSearchIndex, HotStockRegistry hotStockRegistry,
+                                    ObjectMapper objectMapper,
+                                    @Value("${shop.products.import.batch-size:1000}") int batchSize,
+                                    @Value("${shop.products.import.max-errors:1000}") int maxErrors) {
+        this.entityManager = entityManager;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.searchIndex = productSearchIndex;
+        this.hotStock = hotStockRegistry;
+        this.jsonReader = objectMapper.readerFor(ProductDto.class);
+        this.mapper = new ProductMapper();
+        this.batchSize = batchSize;
+        this.maxErrors = maxErrors;
+    }
+
+    @Override
+    public ImportReportDto importProducts(final InputStream content, final ImportFormat format)
+            throws IllegalArgumentException, IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(content, StandardCharsets.UTF_8));
+        long lineNumber = 0;
+        RowParser parser;
+        if (format == ImportFormat.CSV) {
+            String header = reader.readLine();
+            if (header == null) {
+                return new ImportReportDto();
+            }
+            lineNumber++;
+            parser = csvParser(header);
+        } else {
+            parser = jsonReader::readValue;
+        }
+
+        ImportBatchWriter<ProductDto> writer = new ImportBatchWriter<>(entityManager, writeTransaction,
+                product -> List.of(mapper.toEntity(product, new ProductEntity())),
+                this::indexProducts, batchSize, maxErrors);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            ProductDto product;
+            try {
+                product = parser.parse(line);
+            } catch (JsonProcessingException | IllegalArgumentException | DateTimeException e) {
+                writer.reject(lineNumber, "Некорректная строка: " + e.getMessage());
+                continue;
+            }
+            if (product == null || !ProductServiceImpl.isValidProduct(product)) {
+                writer.reject(lineNumber, "Не заполнены обязательные поля товара");
+                continue;
+            }
+            writer.add(lineNumber, product);
+        }
+        return writer.finish();
+    }
+
+    // Индекс поиска и горячие остатки обновляются только после фиксации, чтобы не находить несохраненные товары
+    private void indexProducts(final List<ProductDto> products) {
+        for (ProductDto product : products) {
+            searchIndex.put(product.getId(), product.getName());
+            hotStock.register(product.getId(), product.getAvailableStock());
+        }
+    }
+
+    private static RowParser csvParser(final String header) throws IllegalArgumentException {
+        List<String> columns = splitCsv(header.replace("\uFEFF", ""));
+        for (String column : columns) {
+            if (!CSV_COLUMNS.contains(column.trim())) {
+                throw new IllegalArgumentException("unknown column: " + column);
+            }
+        }
+        return line -> {
+            List<String> values = splitCsv(line);
+            if (values.size() != columns.size()) {
+                throw new IllegalArgumentException("ожидается полей: " + columns.size()
+                        + ", получено: " + values.size());
+            }
+            ProductDto product = new ProductDto();
+            for (int i = 0; i < columns.size(); i++) {
+                setField(product, columns.get(i).trim(), values.get(i).trim());
+            }
+            return product;
+        };
+    }
+
+    private static void setField(final ProductDto product, final String column, final String value) {
+        switch (column) {
+            case "id" -> product.setId(parse(value, UUID::fromString));
+            case "name" -> product.setName(parse(value, Function.identity()));
+            case "category" -> product.setCategory(parse(value, Function.identity()));
+            case "price" -> product.setPrice(parse(value, BigDecimal::new));
+            case "availableStock" -> product.setAvailableStock(parse(value, Integer::valueOf));
+            case "lastUpdateDate" -> product.setLastUpdateDate(parse(value, LocalDate::parse));
+            case "supplierId" -> product.setSupplierId(parse(value, UUID::fromString));
+            case "imageId" -> product.setImageId(parse(value, UUID::fromString));
+            default -> throw new IllegalArgumentException("unknown column: " + column);
+        }
+    }
+
+    // Пустое поле CSV означает отсутствие значения
+    private static <T> T parse(final String value, final Function<String, T> parser) {
+        return value.isEmpty() ? null : parser.apply(value);
+    }
+
+    // Поля через запятую, значения с запятыми и кавычками заключаются в кавычки, кавычка внутри удваивается
+    private static List<String> splitCsv(final String line) throws IllegalArgumentException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("незакрытая кавычка");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    @FunctionalInterface
+    private interface RowParser {
+        ProductDto parse(String line) throws JsonProcessingException;
+    }
+
+}
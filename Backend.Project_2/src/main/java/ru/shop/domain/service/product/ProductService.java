@@ -1,10 +1,13 @@
 package ru.shop.domain.service.product;
 
 import org.springframework.stereotype.Service;
+import ru.shop.domain.model.CursorPageDto;
 import ru.shop.domain.model.ProductDto;
+import ru.shop.domain.model.ProductFilter;
 
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 @Service
 public interface ProductService {
@@ -20,13 +23,14 @@ public interface ProductService {
 
     /**
      * Уменьшение количества единиц товара на складе.
+     * Проверка и списание выполняются атомарно, поэтому параллельные вызовы не уводят остаток в минус.
      *
      * @param id        Уникальный идентификатор товара.
      * @param amount    Количество единиц, на которое нужно уменьшить количество доступного товара.
-     * @return Успешность выполнения операции.
-     * @throws IllegalArgumentException Некорректное количество единиц
+     * @return Обновленный товар или null, если товар не найден.
+     * @throws IllegalArgumentException Некорректное количество единиц или недостаточно товара на складе
      */
-    boolean reduceByAmount(final UUID id, final Integer amount) throws IllegalArgumentException;
+    ProductDto reduceByAmount(final UUID id, final Integer amount) throws IllegalArgumentException;
 
     /**
      * Получение товара по уникальному идентификатору.
@@ -37,11 +41,38 @@ public interface ProductService {
     ProductDto getById(final UUID id);
 
     /**
-     * Получение списка всех товаров.
+     * Последовательная обработка всех товаров без загрузки списка в память.
+     * Товары читаются из базы данных курсором и передаются обработчику по одному.
+     *
+     * @param action Обработчик товара.
+     */
+    void forEach(final Consumer<ProductDto> action);
+
+    /**
+     * Получение страницы товаров, удовлетворяющих условиям, в заданном порядке.
+     * Отбор и сортировка выполняются в базе данных, стоимость запроса не зависит от номера страницы.
+     *
+     * @param filter    Условия отбора и порядок.
+     * @param after     Курсор из предыдущей страницы с тем же порядком или null для первой страницы.
+     * @param limit     Количество товаров на странице.
+     * @return Страница товаров с курсором следующей страницы.
+     * @throws IllegalArgumentException Некорректные условия, курсор или limit
+     */
+    CursorPageDto<ProductDto> getPage(final ProductFilter filter, final String after,
+                                      final int limit) throws IllegalArgumentException;
+
+    /**
+     * Поиск товаров по словам названия.
+     * Слова запроса сопоставляются со словами названия целиком или по началу,
+     * без учета регистра и различия е/ё.
      *
-     * @return Список товаров. Пустой список, если товары отсутствуют.
+     * @param query     Строка запроса.
+     * @param offset    Количество пропускаемых результатов.
+     * @param limit     Количество товаров в ответе.
+     * @return Товары в порядке релевантности. Пустой список, если ничего не найдено.
+     * @throws IllegalArgumentException Пустой запрос или некорректные offset / limit
      */
-    List<ProductDto> getAll();
+    List<ProductDto> search(final String query, final int offset, final int limit) throws IllegalArgumentException;
 
     /**
      * Удаление товара по уникальному идентификатору.
@@ -1,33 +1,65 @@
 package ru.shop.domain.service.product;
 
+import jakarta.persistence.EntityManager;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import ru.shop.dao.model.ProductEntity;
 import ru.shop.dao.repository.ProductRepository;
+import ru.shop.dao.repository.ProductSpecifications;
+import ru.shop.domain.service.product.search.ProductSearchIndex;
+import ru.shop.domain.service.product.stock.HotStockRegistry;
 import ru.shop.mapper.ProductMapper;
+import ru.shop.domain.model.CursorPageDto;
 import ru.shop.domain.model.ProductDto;
+import ru.shop.domain.model.ProductFilter;
+import ru.shop.domain.model.ProductSort;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class ProductServiceImpl implements ProductService {
 
     private final ProductRepository repository;
+    private final ProductCache cache;
+    private final HotStockRegistry hotStock;
+    private final ProductSearchIndex searchIndex;
+    private final EntityManager entityManager;
     private final ProductMapper mapper;
+    private final int maxPageSize;
 
     @Autowired
-    public ProductServiceImpl(ProductRepository productRepository) {
+    public ProductServiceImpl(ProductRepository productRepository, ProductCache productCache,
+                              HotStockRegistry hotStockRegistry,
+                              ProductSearchIndex productSearchIndex, EntityManager entityManager,
+                              @Value("${shop.products.page.max-limit:500}") int maxPageSize) {
         this.repository = productRepository;
+        this.cache = productCache;
+        this.hotStock = hotStockRegistry;
+        this.searchIndex = productSearchIndex;
+        this.entityManager = entityManager;
         this.mapper = new ProductMapper();
+        this.maxPageSize = maxPageSize;
     }
 
     @Override
     public boolean add(final ProductDto product) {
         if (isValidProduct(product)) {
-            repository.save(mapper.toEntity(product, new ProductEntity()));
+            hotStock.unregister(product.getId());  // save перезаписывает остаток существующей строки
+            ProductEntity saved = repository.save(mapper.toEntity(product, new ProductEntity()));
+            cache.invalidate(List.of(saved.getId()));
+            hotStock.register(saved.getId(), saved.getAvailableStock());
+            searchIndex.put(product.getId(), product.getName());
             return true;
         } else {
             return false;
@@ -35,46 +67,127 @@ public class ProductServiceImpl implements ProductService {
     }
 
     @Override
-    public boolean reduceByAmount(final UUID id, final Integer amount) throws IllegalArgumentException {
-        if (repository.existsById(id)) {
-            ProductDto product = getById(id);
-            if (amount > product.getAvailableStock() || amount < 1) {
+    public ProductDto reduceByAmount(final UUID id, final Integer amount) throws IllegalArgumentException {
+        if (amount == null || amount < 1) {
+            throw new IllegalArgumentException("amount must be > 0 and < availableStock");
+        }
+        if (hotStock.isHot(id)) {
+            if (hotStock.tryReserve(id, amount)) {
+                return getById(id);
+            }
+            if (hotStock.isHot(id)) {
                 throw new IllegalArgumentException("amount must be > 0 and < availableStock");
-            } else {
-                product.setAvailableStock(product.getAvailableStock() - amount);
-                repository.save(mapper.toEntity(product, new ProductEntity()));
-                return true;
             }
+            // товар исключен во время списания, его остаток уже перенесен в базу данных
+        }
+        Optional<ProductEntity> product = repository.reduceAvailableStock(id, amount);
+        if (product.isPresent()) {
+            cache.invalidate(List.of(id));
+            return mapper.toDto(product.get(), new ProductDto());
+        }
+        // Строка не изменена: товара нет или остатка не хватает. Различаются только на этой редкой ветке
+        if (repository.existsById(id)) {
+            throw new IllegalArgumentException("amount must be > 0 and < availableStock");
         } else {
-            return false;
+            return null;
         }
     }
 
     @Override
     public ProductDto getById(final UUID id) {
-        Optional<ProductEntity> product = repository.findById(id);
-        return product.map(entity -> mapper.toDto(entity, new ProductDto())).orElse(null);
+        return hotStock.overlay(cache.get(id));
+    }
+
+    // Сущность отсоединяется сразу после преобразования, поэтому контекст персистентности не растет
+    @Override
+    @Transactional(readOnly = true)
+    public void forEach(final Consumer<ProductDto> action) {
+        try (Stream<ProductEntity> entities = repository.streamAll()) {
+            entities.forEach(entity -> {
+                ProductDto product = hotStock.overlay(mapper.toDto(entity, new ProductDto()));
+                entityManager.detach(entity);
+                action.accept(product);
+            });
+        }
     }
 
+    // Запрашивается на одну строку больше страницы: так известно, есть ли следующая, без COUNT(*)
     @Override
-    public List<ProductDto> getAll() {
-        List<ProductEntity> entities = repository.findAll();
-        return entities.stream()
-                .map(entity -> mapper.toDto(entity, new ProductDto()))
+    public CursorPageDto<ProductDto> getPage(final ProductFilter filter, final String after,
+                                             final int limit) throws IllegalArgumentException {
+        if (limit < 1 || limit > maxPageSize) {
+            throw new IllegalArgumentException("limit must be > 0 and <= " + maxPageSize);
+        }
+        if (filter.getMinPrice() != null && filter.getMaxPrice() != null
+                && filter.getMinPrice().compareTo(filter.getMaxPrice()) > 0) {
+            throw new IllegalArgumentException("minPrice must be <= maxPrice");
+        }
+        boolean byPrice = filter.getSort() != ProductSort.ID;
+        Specification<ProductEntity> specification = ProductSpecifications.matching(filter.getCategory(),
+                filter.getMinPrice(), filter.getMaxPrice(), filter.getInStock(), filter.getSupplierId());
+        if (after != null) {
+            ProductCursor cursor = ProductCursor.decode(after);
+            if (byPrice != (cursor.price() != null)) {
+                throw new IllegalArgumentException("cursor does not match sort");
+            }
+            specification = specification.and(byPrice
+                    ? ProductSpecifications.priceAfter(cursor.price(), cursor.id(),
+                    filter.getSort() == ProductSort.PRICE_DESC)
+                    : ProductSpecifications.idAfter(cursor.id()));
+        }
+        Sort sort = switch (filter.getSort()) {
+            case ID -> Sort.by("id");
+            case PRICE_ASC -> Sort.by("price", "id");
+            case PRICE_DESC -> Sort.by(Sort.Order.desc("price"), Sort.Order.desc("id"));  // обратный обход (price, id)
+        };
+        List<ProductEntity> entities = repository.findBy(specification,
+                query -> query.sortBy(sort).limit(limit + 1).all());
+        String next = null;
+        if (entities.size() > limit) {
+            entities = entities.subList(0, limit);
+            ProductEntity last = entities.get(limit - 1);
+            next = new ProductCursor(last.getId(), byPrice ? last.getPrice() : null).encode();
+        }
+        List<ProductDto> products = entities.stream()
+                .map(entity -> hotStock.overlay(mapper.toDto(entity, new ProductDto())))
+                .collect(Collectors.toList());
+        return new CursorPageDto<>(products, next);
+    }
+
+    // Индекс возвращает только id страницы, товары загружаются одним запросом по первичному ключу
+    @Override
+    public List<ProductDto> search(final String query, final int offset, final int limit)
+            throws IllegalArgumentException {
+        if (query == null || query.isBlank() || offset < 0 || limit < 1 || limit > maxPageSize) {
+            throw new IllegalArgumentException("query must not be blank, offset >= 0, 0 < limit <= " + maxPageSize);
+        }
+        List<UUID> ids = searchIndex.search(query, offset, limit);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<UUID, ProductEntity> entities = repository.findAllById(ids).stream()
+                .collect(Collectors.toMap(ProductEntity::getId, entity -> entity));
+        return ids.stream()
+                .map(entities::get)
+                .filter(Objects::nonNull)
+                .map(entity -> hotStock.overlay(mapper.toDto(entity, new ProductDto())))
                 .collect(Collectors.toList());
     }
 
     @Override
     public boolean deleteById(final UUID id) {
         if (repository.existsById(id)) {
+            hotStock.unregister(id);
             repository.deleteById(id);
+            cache.invalidate(List.of(id));
+            searchIndex.remove(id);
             return true;
         } else {
             return false;
         }
     }
 
-    private boolean isValidProduct(final ProductDto product) {
+    static boolean isValidProduct(final ProductDto product) {
         return product.getId() != null && product.getName() != null &&
                     product.getCategory() != null && product.getAvailableStock() != null
                     && product.getSupplierId() != null && product.getPrice() != null;
@@ -0,0 +1,20 @@
+package ru.shop.domain.service.product;
+
+import ru.shop.domain.model.ProductStatsDto;
+import ru.shop.domain.model.ProductStatsGroup;
+
+import java.util.List;
+
+public interface ProductStatsService {
+
+    /**
+     * Количество товаров, суммарный остаток, стоимость остатка и средняя цена по группам.
+     * Результат считается в базе данных и кэшируется на shop.products.stats.expire-after-write:
+     * изменения товаров видны в агрегатах не позже этого срока.
+     *
+     * @param group Группировка по категории или поставщику.
+     * @return Агрегаты, упорядоченные по группе. Пустой список, если товаров нет.
+     */
+    List<ProductStatsDto> getStats(final ProductStatsGroup group);
+
+}
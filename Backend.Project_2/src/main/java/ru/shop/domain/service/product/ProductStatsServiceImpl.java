@@ -0,0 +1,59 @@
+package ru.shop.domain.service.product;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.shop.dao.repository.ProductRepository;
+import ru.shop.dao.repository.ProductStatsView;
+import ru.shop.domain.model.ProductStatsDto;
+import ru.shop.domain.model.ProductStatsGroup;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.util.List;
+
+@Service
+public class ProductStatsServiceImpl implements ProductStatsService {
+
+    private final ProductRepository repository;
+    private final LoadingCache<ProductStatsGroup, List<ProductStatsDto>> cache;
+
+    @Autowired
+    public ProductStatsServiceImpl(ProductRepository productRepository,
+                                   @Value("${shop.products.stats.expire-after-write:10s}") Duration expireAfterWrite,
+                                   MeterRegistry meterRegistry) {
+        this.repository = productRepository;
+        // Параллельные промахи по одной группировке выполняют один запрос GROUP BY
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build(this::load);
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "product-stats");
+    }
+
+    @Override
+    public List<ProductStatsDto> getStats(final ProductStatsGroup group) {
+        return cache.get(group);
+    }
+
+    private List<ProductStatsDto> load(final ProductStatsGroup group) {
+        List<ProductStatsView> rows = group == ProductStatsGroup.CATEGORY
+                ? repository.aggregateByCategory()
+                : repository.aggregateBySupplier();
+        return rows.stream()
+                .map(row -> new ProductStatsDto(row.getGroupKey(), row.getProductCount(),
+                        row.getTotalStock() != null ? row.getTotalStock() : 0,
+                        row.getStockValue() != null ? row.getStockValue() : BigDecimal.ZERO,
+                        row.getPriceSum() != null
+                                ? row.getPriceSum().divide(BigDecimal.valueOf(row.getProductCount()),
+                                        2, RoundingMode.HALF_UP)
+                                : BigDecimal.ZERO))
+                .toList();  // неизменяемый список: один экземпляр отдается всем запросам до истечения срока
+    }
+
+}
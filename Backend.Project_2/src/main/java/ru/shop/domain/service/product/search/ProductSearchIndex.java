@@ -0,0 +1,207 @@
+package ru.shop.domain.service.product.search;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.shop.dao.model.ProductEntity;
+import ru.shop.dao.repository.ProductRepository;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Инвертированный индекс названий товаров в памяти.
+ * Названия разбиваются на слова, приводятся к нижнему регистру, ё заменяется на е.
+ * Слова хранятся в упорядоченном словаре, поэтому поиск по префиксу — выборка диапазона ключей
+ * без просмотра таблицы. Индекс строится при запуске и обновляется при изменении товаров.
+ * Множество товаров одного слова меняется под блокировкой полосы этого слова: compute словаря
+ * на списках с пропусками не атомарен и может применить функцию повторно к уже замененному значению.
+ */
+@Component
+public class ProductSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    private static final Pattern SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final int EXACT_SCORE = 2;
+    private static final int PREFIX_SCORE = 1;
+    private static final int LOCK_STRIPES = 64;
+
+    private final ProductRepository repository;
+    private final TransactionTemplate readTransaction;
+    private final ConcurrentNavigableMap<String, Set<UUID>> tokens = new ConcurrentSkipListMap<>();
+    private final Map<UUID, Document> documents = new ConcurrentHashMap<>();
+    private final Object[] tokenLocks = new Object[LOCK_STRIPES];
+
+    @Autowired
+    public ProductSearchIndex(ProductRepository productRepository, PlatformTransactionManager transactionManager) {
+        this.repository = productRepository;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            tokenLocks[i] = new Object();
+        }
+    }
+
+    @PostConstruct
+    public void build() {
+        readTransaction.executeWithoutResult(status -> {
+            try (Stream<ProductEntity> products = repository.streamAll()) {
+                products.forEach(product -> put(product.getId(), product.getName()));
+            }
+        });
+        log.info("Индекс поиска товаров построен: {} товаров, {} слов", documents.size(), tokens.size());
+    }
+
+    /**
+     * Добавление или замена названия товара в индексе.
+     *
+     * @param id    Уникальный идентификатор товара.
+     * @param name  Название товара.
+     */
+    public void put(final UUID id, final String name) {
+        String[] words = tokenize(name);
+        documents.compute(id, (key, previous) -> {
+            if (previous != null) {
+                unlink(id, previous.words());
+            }
+            for (String word : words) {
+                synchronized (lockOf(word)) {
+                    Set<UUID> ids = tokens.get(word);
+                    if (ids == null) {
+                        ids = ConcurrentHashMap.newKeySet();
+                        tokens.put(word, ids);
+                    }
+                    ids.add(id);
+                }
+            }
+            return new Document(name != null ? name.length() : 0, words);
+        });
+    }
+
+    public void remove(final UUID id) {
+        documents.computeIfPresent(id, (key, previous) -> {
+            unlink(id, previous.words());
+            return null;
+        });
+    }
+
+    /**
+     * Поиск товаров по словам запроса.
+     * Каждое слово запроса должно совпадать со словом названия целиком или быть его началом.
+     * Полное совпадение ранжируется выше префиксного, при равенстве — более короткое название.
+     * Сортируются не все совпадения, а только первые offset + limit, отобранные кучей.
+     *
+     * @param query     Строка запроса.
+     * @param offset    Количество пропускаемых результатов.
+     * @param limit     Количество возвращаемых результатов.
+     * @return Уникальные идентификаторы товаров в порядке релевантности.
+     */
+    public List<UUID> search(final String query, final int offset, final int limit) {
+        String[] words = tokenize(query);
+        if (words.length == 0) {
+            return List.of();
+        }
+        Map<UUID, Integer> scores = null;
+        for (String word : words) {
+            Map<UUID, Integer> matches = match(word);
+            if (scores == null) {
+                scores = matches;
+            } else {
+                scores.keySet().retainAll(matches.keySet());
+                for (Map.Entry<UUID, Integer> entry : scores.entrySet()) {
+                    entry.setValue(entry.getValue() + matches.get(entry.getKey()));
+                }
+            }
+            if (scores.isEmpty()) {
+                return List.of();
+            }
+        }
+        int top = (int) Math.min((long) offset + limit, scores.size());
+        if (top <= 0) {
+            return List.of();
+        }
+        Map<UUID, Integer> ranked = scores;
+        Comparator<UUID> order = Comparator.<UUID>comparingInt(ranked::get).reversed()
+                .thenComparingInt(id -> documents.getOrDefault(id, Document.EMPTY).length())
+                .thenComparing(Comparator.naturalOrder());
+        // В голове кучи худший из отобранных: он вытесняется, если следующий товар релевантнее
+        PriorityQueue<UUID> best = new PriorityQueue<>(top + 1, order.reversed());
+        for (UUID id : ranked.keySet()) {
+            if (!documents.containsKey(id)) {
+                continue;
+            }
+            if (best.size() < top) {
+                best.add(id);
+            } else if (order.compare(id, best.peek()) < 0) {
+                best.poll();
+                best.add(id);
+            }
+        }
+        return best.stream()
+                .sorted(order)
+                .skip(offset)
+                .toList();
+    }
+
+    // Слова названий, начинающиеся с word: диапазон [word, word + максимальный символ)
+    private Map<UUID, Integer> match(final String word) {
+        Map<UUID, Integer> matches = new HashMap<>();
+        for (Map.Entry<String, Set<UUID>> entry : tokens.subMap(word, true, word + Character.MAX_VALUE, false).entrySet()) {
+            int score = entry.getKey().length() == word.length() ? EXACT_SCORE : PREFIX_SCORE;
+            for (UUID id : entry.getValue()) {
+                matches.merge(id, score, Math::max);
+            }
+        }
+        return matches;
+    }
+
+    private void unlink(final UUID id, final String[] words) {
+        for (String word : words) {
+            synchronized (lockOf(word)) {
+                Set<UUID> ids = tokens.get(word);
+                if (ids != null && ids.remove(id) && ids.isEmpty()) {
+                    tokens.remove(word);
+                }
+            }
+        }
+    }
+
+    private Object lockOf(final String word) {
+        return tokenLocks[Math.floorMod(word.hashCode(), LOCK_STRIPES)];
+    }
+
+    static String[] tokenize(final String text) {
+        if (text == null) {
+            return new String[0];
+        }
+        String normalized = text.toLowerCase(Locale.ROOT).replace('ё', 'е');
+        return Arrays.stream(SEPARATOR.split(normalized))
+                .filter(word -> !word.isEmpty())
+                .distinct()
+                .toArray(String[]::new);
+    }
+
+    private record Document(int length, String[] words) {
+
+        static final Document EMPTY = new Document(0, new String[0]);
+
+    }
+
+}
@@ -0,0 +1,255 @@
+package ru.shop.domain.service.product.stock;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.shop.dao.model.StockJournalEntity;
+import ru.shop.dao.repository.ProductRepository;
+import ru.shop.dao.repository.StockJournalRepository;
+import ru.shop.domain.model.ProductDto;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Остатки горячих товаров для распродаж.
+ * Товары из shop.products.hot.ids списываются в памяти без блокировки строки в базе данных.
+ * Списания записываются в локальный журнал и периодически переносятся в таблицу product одним
+ * пакетом. После падения процесса незаписанные сегменты журнала применяются при запуске.
+ * Рассчитано на один экземпляр приложения: остаток горячего товара меняется только через этот компонент.
+ */
+@Component
+public class HotStockRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(HotStockRegistry.class);
+
+    private static final String JOURNAL_NAME = "products";
+
+    // Порядок uuid в PostgreSQL: беззнаковое сравнение байт, в отличие от UUID.compareTo
+    private static final Comparator<UUID> DATABASE_ORDER = Comparator
+            .comparing(UUID::getMostSignificantBits, Long::compareUnsigned)
+            .thenComparing(UUID::getLeastSignificantBits, Long::compareUnsigned);
+
+    private final ProductRepository repository;
+    private final StockJournalRepository checkpoints;
+    private final TransactionTemplate transactionTemplate;
+    private final Set<UUID> hotIds;
+    private final int stripes;
+    private final Path directory;
+    private final Map<UUID, StripedStock> stocks = new ConcurrentHashMap<>();
+    private final List<StockJournal.Segment> unflushed = new ArrayList<>();
+    private StockJournal journal;
+
+    @Autowired
+    public HotStockRegistry(ProductRepository productRepository, StockJournalRepository stockJournalRepository,
+                            TransactionTemplate transactionTemplate,
+                            @Value("${shop.products.hot.ids:}") UUID[] hotIds,
+                            @Value("${shop.products.hot.stripes:16}") int stripes,
+                            @Value("${shop.products.hot.journal:./data/stock-journal}") Path directory) {
+        this.repository = productRepository;
+        this.checkpoints = stockJournalRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.hotIds = Arrays.stream(hotIds).collect(Collectors.toSet());
+        this.stripes = stripes;
+        this.directory = directory;
+    }
+
+    // Сначала применяются списания, не дошедшие до базы данных, затем из нее загружаются остатки
+    @PostConstruct
+    public synchronized void start() {
+        if (hotIds.isEmpty()) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            List<StockJournal.Segment> recovered = StockJournal.recover(directory);
+            long applied = checkpoints.findById(JOURNAL_NAME).map(StockJournalEntity::getLastSegment).orElse(-1L);
+            List<StockJournal.Segment> notApplied = recovered.stream()
+                    .filter(segment -> segment.number() > applied)
+                    .toList();
+            if (!notApplied.isEmpty()) {
+                apply(notApplied);
+                log.info("Применены списания горячих товаров из журнала: {} сегм.", notApplied.size());
+            }
+            for (StockJournal.Segment segment : recovered) {
+                Files.deleteIfExists(segment.file());
+            }
+            long last = recovered.isEmpty() ? applied : Math.max(applied, recovered.get(recovered.size() - 1).number());
+            journal = new StockJournal(directory, last + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        repository.findAllById(hotIds).forEach(product ->
+                stocks.put(product.getId(), new StripedStock(product.getAvailableStock(), stripes)));
+    }
+
+    @PreDestroy
+    public synchronized void stop() throws IOException {
+        if (journal != null) {
+            flush();
+            journal.close();
+        }
+    }
+
+    public boolean isHot(final UUID id) {
+        return stocks.containsKey(id);
+    }
+
+    /**
+     * Учет остатка товара из shop.products.hot.ids, только что сохраненного в базе данных.
+     * Счетчик в памяти начинается заново с сохраненного остатка.
+     *
+     * @param id        Уникальный идентификатор товара.
+     * @param available Сохраненный остаток.
+     */
+    public synchronized void register(final UUID id, final int available) {
+        if (journal != null && hotIds.contains(id)) {
+            stocks.put(id, new StripedStock(available, stripes));
+        }
+    }
+
+    /**
+     * Исключение товара перед удалением или перезаписью его строки.
+     * Накопленные списания переносятся в базу данных, чтобы не примениться к новой строке.
+     * До следующего {@link #register} товар списывается обычным путем через базу данных.
+     *
+     * @param id Уникальный идентификатор товара.
+     * @throws UncheckedIOException Не удалось закрыть сегмент журнала.
+     * @throws RuntimeException     Не удалось записать списания в базу данных. Перезапись или удаление
+     *                              строки должны быть прерваны, иначе списания применятся к новой строке.
+     */
+    public synchronized void unregister(final UUID id) {
+        StripedStock stock = stocks.remove(id);
+        if (stock != null) {
+            journal.fence(stock);  // списания, успевшие пройти CAS, больше не попадут в журнал
+            flushJournal();
+        }
+    }
+
+    /**
+     * Списание горячего товара.
+     *
+     * @param id        Уникальный идентификатор горячего товара.
+     * @param amount    Количество единиц, больше нуля.
+     * @return Успешность операции. Если остатка не хватает или товар исключен, возвращается false.
+     */
+    public boolean tryReserve(final UUID id, final int amount) {
+        StripedStock stock = stocks.get(id);
+        if (stock == null || !stock.tryReserve(amount)) {
+            return false;
+        }
+        try {
+            if (!journal.append(id, amount, stock)) {
+                stock.release(amount);  // товар исключен между поиском и записью, журнал уже закрыт для него
+                return false;
+            }
+        } catch (IOException e) {
+            stock.release(amount);
+            throw new UncheckedIOException(e);
+        }
+        return true;
+    }
+
+    /**
+     * Возврат списанного количества, например при откате заказа.
+     *
+     * @param id        Уникальный идентификатор горячего товара.
+     * @param amount    Количество единиц.
+     */
+    public void release(final UUID id, final int amount) {
+        try {
+            journal.append(id, -amount);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        StripedStock stock = stocks.get(id);
+        if (stock != null) {  // исключенный товар получит возврат из журнала в базе данных
+            stock.release(amount);
+        }
+    }
+
+    // Остаток в базе данных отстает на период записи, поэтому для горячих товаров берется из памяти
+    public ProductDto overlay(final ProductDto product) {
+        StripedStock stock = product != null ? stocks.get(product.getId()) : null;
+        if (stock != null) {
+            product.setAvailableStock((int) stock.available());
+        }
+        return product;
+    }
+
+    /**
+     * Перенос списаний в таблицу product.
+     * Сегменты, которые не удалось записать, повторяются при следующем вызове.
+     */
+    @Scheduled(fixedDelayString = "${shop.products.hot.flush-delay:200}")
+    public synchronized void flush() {
+        try {
+            flushJournal();
+        } catch (RuntimeException e) {
+            log.warn("Не удалось записать списания горячих товаров, запись будет повторена", e);
+        }
+    }
+
+    private void flushJournal() {
+        if (journal == null) {
+            return;
+        }
+        try {
+            StockJournal.Segment sealed = journal.seal();
+            if (sealed != null) {
+                unflushed.add(sealed);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (unflushed.isEmpty()) {
+            return;
+        }
+        apply(unflushed);
+        for (StockJournal.Segment segment : unflushed) {
+            try {
+                Files.deleteIfExists(segment.file());
+            } catch (IOException e) {
+                log.warn("Не удалось удалить сегмент журнала {}", segment.file(), e);  // пропускается по номеру
+            }
+        }
+        unflushed.clear();
+    }
+
+    // Списания и номер последнего сегмента фиксируются в одной транзакции, поэтому сегмент,
+    // не удаленный из-за падения после фиксации, не применяется повторно
+    private void apply(final List<StockJournal.Segment> segments) {
+        Map<UUID, Long> deltas = new TreeMap<>(DATABASE_ORDER);
+        for (StockJournal.Segment segment : segments) {
+            segment.deltas().forEach((id, delta) -> deltas.merge(id, delta, Long::sum));
+        }
+        long last = segments.get(segments.size() - 1).number();
+        transactionTemplate.executeWithoutResult(status -> {
+            deltas.forEach((id, delta) -> {
+                if (delta != 0) {
+                    repository.subtractAvailableStock(id, Math.toIntExact(delta));
+                }
+            });
+            checkpoints.save(new StockJournalEntity(JOURNAL_NAME, last));
+        });
+    }
+
+}
@@ -0,0 +1,245 @@
+package ru.shop.domain.service.product.stock;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Локальный журнал списаний горячих товаров.
+ * Каждое списание дописывается в текущий сегмент до ответа клиенту. Перед записью в базу данных
+ * сегмент закрывается, и новые списания идут в следующий; после фиксации сегмент удаляется.
+ * Запись попадает в страничный кэш ОС без fsync, поэтому переживает падение процесса, но не ОС.
+ * Запись групповая: монитор журнала держится только на время копирования записи в буфер пакета,
+ * а пакет записывается в файл одним вызовом первым из ожидающих потоков. Пока идет запись,
+ * следующие списания собираются в новый пакет, поэтому при конкуренции на пакет приходится
+ * один системный вызов, а не на каждое списание.
+ */
+final class StockJournal implements Closeable {
+
+    private static final String PREFIX = "stock-";
+    private static final String SUFFIX = ".log";
+    private static final int RECORD_SIZE = Long.BYTES * 2 + Integer.BYTES;  // id товара и количество
+
+    private final Path directory;
+    private final Object writeLock = new Object();  // захватывается до монитора журнала
+    private long segment;
+    private FileChannel channel;
+    private Map<UUID, Long> pending = new HashMap<>();
+    private Batch batch = new Batch();
+
+    StockJournal(Path directory, long firstSegment) throws IOException {
+        this.directory = directory;
+        this.segment = firstSegment;
+        this.channel = open(firstSegment);
+    }
+
+    /**
+     * Запись изменения остатка.
+     * Пакет с записью попадает в файл до закрытия сегмента, поэтому каждое списание
+     * попадает в базу данных ровно с тем сегментом, в файле которого оно записано.
+     * Метод возвращается после записи пакета в файл.
+     *
+     * @param id        Уникальный идентификатор товара.
+     * @param amount    Списанное количество, отрицательное для возврата.
+     * @throws IOException Ошибка записи файла.
+     */
+    void append(final UUID id, final int amount) throws IOException {
+        append(id, amount, null);
+    }
+
+    /**
+     * Запись списания, если остаток товара еще не закрыт.
+     * Закрытие проверяется под тем же монитором, что и запись, поэтому списание либо попадает
+     * в сегмент до {@link #fence}, либо не записывается вовсе.
+     *
+     * @param id        Уникальный идентификатор товара.
+     * @param amount    Списанное количество, отрицательное для возврата.
+     * @param stock     Остаток товара в памяти или null, если проверка не нужна.
+     * @return false, если остаток закрыт и списание не записано.
+     * @throws IOException Ошибка записи файла.
+     */
+    boolean append(final UUID id, final int amount, final StripedStock stock) throws IOException {
+        Batch joined;
+        synchronized (this) {
+            if (stock != null && stock.isClosed()) {
+                return false;
+            }
+            batch.add(id, amount);
+            pending.merge(id, (long) amount, Long::sum);
+            joined = batch;
+        }
+        synchronized (writeLock) {
+            // Незаписанный пакет остается текущим: его заменяет только поток, держащий writeLock
+            if (!joined.written) {
+                FileChannel target;
+                synchronized (this) {
+                    target = channel;
+                    batch = new Batch();
+                }
+                write(joined, target);
+            }
+        }
+        if (joined.failure != null) {
+            throw new IOException("Не удалось записать пакет журнала", joined.failure);
+        }
+        return true;
+    }
+
+    /**
+     * Закрытие остатка товара: дальнейшие списания через {@link #append(UUID, int, StripedStock)}
+     * не записываются. Все уже записанные списания попадут в следующий закрытый сегмент.
+     *
+     * @param stock Остаток товара в памяти.
+     */
+    synchronized void fence(final StripedStock stock) {
+        stock.close();
+    }
+
+    /**
+     * Закрытие текущего сегмента и переход к следующему.
+     *
+     * @return Закрытый сегмент или null, если в текущем сегменте нет записей.
+     * @throws IOException Ошибка создания файла следующего сегмента.
+     */
+    Segment seal() throws IOException {
+        synchronized (writeLock) {
+            synchronized (this) {
+                drain();
+                if (pending.isEmpty()) {
+                    return null;
+                }
+                FileChannel next = open(segment + 1);
+                channel.close();
+                Segment sealed = new Segment(segment, path(segment), pending);
+                channel = next;
+                segment++;
+                pending = new HashMap<>();
+                return sealed;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (writeLock) {
+            synchronized (this) {
+                drain();
+                channel.close();
+            }
+        }
+    }
+
+    // Вызывается под обоими мониторами: остаток текущего пакета дописывается в файл его сегмента
+    private void drain() {
+        Batch last = batch;
+        batch = new Batch();
+        write(last, channel);
+    }
+
+    // Вызывается под writeLock. При ошибке списания пакета исключаются из сегмента,
+    // а потоки, ожидающие пакет, получают IOException и возвращают остаток
+    private void write(final Batch written, final FileChannel target) {
+        ByteBuffer content = written.content();
+        try {
+            while (content.hasRemaining()) {
+                target.write(content);
+            }
+        } catch (IOException e) {
+            written.failure = e;
+            synchronized (this) {
+                ByteBuffer records = written.content();
+                while (records.hasRemaining()) {
+                    UUID id = new UUID(records.getLong(), records.getLong());
+                    pending.merge(id, (long) -records.getInt(), Long::sum);
+                }
+            }
+        } finally {
+            written.written = true;
+        }
+    }
+
+    /**
+     * Чтение сегментов, оставшихся после предыдущего запуска.
+     * Неполная последняя запись, оборванная падением процесса, отбрасывается.
+     *
+     * @param directory Каталог журнала.
+     * @return Сегменты в порядке номеров.
+     * @throws IOException Ошибка чтения каталога или файлов.
+     */
+    static List<Segment> recover(final Path directory) throws IOException {
+        List<Segment> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                long number = Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+                segments.add(new Segment(number, file, read(file)));
+            }
+        }
+        segments.sort(Comparator.comparingLong(Segment::number));
+        return segments;
+    }
+
+    private static Map<UUID, Long> read(final Path file) throws IOException {
+        Map<UUID, Long> deltas = new HashMap<>();
+        ByteBuffer content = ByteBuffer.wrap(Files.readAllBytes(file));
+        while (content.remaining() >= RECORD_SIZE) {
+            UUID id = new UUID(content.getLong(), content.getLong());
+            deltas.merge(id, (long) content.getInt(), Long::sum);
+        }
+        return deltas;
+    }
+
+    private FileChannel open(final long number) throws IOException {
+        return FileChannel.open(path(number), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    private Path path(final long number) {
+        return directory.resolve(String.format("%s%020d%s", PREFIX, number, SUFFIX));
+    }
+
+    // Записи, ожидающие одного вызова write. Поля written и failure читаются под writeLock
+    // или после его освобождения записавшим потоком
+    private static final class Batch {
+
+        private ByteBuffer records = ByteBuffer.allocate(RECORD_SIZE * 64);
+        private boolean written;
+        private IOException failure;
+
+        void add(final UUID id, final int amount) {
+            if (records.remaining() < RECORD_SIZE) {
+                records = ByteBuffer.allocate(records.capacity() * 2).put(records.flip());
+            }
+            records.putLong(id.getMostSignificantBits())
+                    .putLong(id.getLeastSignificantBits())
+                    .putInt(amount);
+        }
+
+        ByteBuffer content() {
+            return records.duplicate().flip();
+        }
+
+    }
+
+    /**
+     * Закрытый сегмент журнала.
+     *
+     * @param number    Номер сегмента.
+     * @param file      Файл сегмента.
+     * @param deltas    Суммарные списания по товарам.
+     */
+    record Segment(long number, Path file, Map<UUID, Long> deltas) {
+    }
+
+}
@@ -0,0 +1,93 @@
+package ru.shop.domain.service.product.stock;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Остаток товара, разделенный на полосы.
+ * Списание уменьшает одну полосу через CAS и никогда не опускает ее ниже нуля, поэтому сумма полос
+ * не становится отрицательной. Потоки обычно попадают в разные полосы и не конкурируют за одну ячейку.
+ * Если ни в одной полосе не хватает остатка, полосы собираются и перераспределяются под блокировкой.
+ */
+final class StripedStock {
+
+    private final AtomicLong[] stripes;
+    private final ReentrantLock rebalance = new ReentrantLock();
+    private boolean closed;  // читается и меняется под монитором журнала
+
+    StripedStock(long available, int stripeCount) {
+        this.stripes = new AtomicLong[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new AtomicLong();
+        }
+        distribute(Math.max(0, available));
+    }
+
+    boolean tryReserve(final int amount) {
+        int start = ThreadLocalRandom.current().nextInt(stripes.length);
+        for (int i = 0; i < stripes.length; i++) {
+            AtomicLong stripe = stripes[(start + i) % stripes.length];
+            long current = stripe.get();
+            while (current >= amount) {
+                if (stripe.compareAndSet(current, current - amount)) {
+                    return true;
+                }
+                current = stripe.get();
+            }
+        }
+        return reserveSlow(amount);
+    }
+
+    void release(final int amount) {
+        stripes[ThreadLocalRandom.current().nextInt(stripes.length)].addAndGet(amount);
+    }
+
+    /**
+     * Запрет записи списаний этого остатка в журнал.
+     * Вызывается под монитором журнала перед закрытием сегмента, поэтому после закрытия
+     * в журнал не попадает ни одно списание исключенного товара.
+     */
+    void close() {
+        closed = true;
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    long available() {
+        long total = 0;
+        for (AtomicLong stripe : stripes) {
+            total += stripe.get();
+        }
+        return total;
+    }
+
+    // Полосы собираются по одной без остановки быстрого пути, поэтому сумма не моментальный снимок.
+    // Перепродажи нет: списания уменьшают только непустые полосы, а собранное списывается под блокировкой.
+    // Отказ же может быть ложным, если возврат попал в уже собранную полосу; остаток найдет следующее списание
+    private boolean reserveSlow(final int amount) {
+        rebalance.lock();
+        try {
+            long total = 0;
+            for (AtomicLong stripe : stripes) {
+                total += stripe.getAndSet(0);
+            }
+            boolean reserved = total >= amount;
+            distribute(reserved ? total - amount : total);
+            return reserved;
+        } finally {
+            rebalance.unlock();
+        }
+    }
+
+    private void distribute(final long total) {
+        long share = total / stripes.length;
+        long rest = total % stripes.length;
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i].addAndGet(share + (i < rest ? 1 : 0));
+        }
+    }
+
+}
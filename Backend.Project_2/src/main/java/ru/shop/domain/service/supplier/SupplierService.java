@@ -3,7 +3,6 @@ package ru.shop.domain.service.supplier;
 import org.springframework.stereotype.Service;
 import ru.shop.domain.model.AddressDto;
 import ru.shop.domain.model.SupplierDto;
-import ru.shop.domain.service.address.AddressService;
 
 import java.util.List;
 import java.util.UUID;
@@ -22,8 +21,9 @@ public interface SupplierService {
 
     /**
      * Изменение адреса поставщика.
+     * Все изменения выполняются в одной транзакции под блокировкой строки поставщика:
+     * при сбое адреса остаются прежними, параллельные замены выполняются по очереди.
      *
-     * @param addressService    Сервис адресов.
      * @param supplierId        Уникальный идентификатор поставщика.
      *                          Если не найден, операция не выполняется.
      * @param newAddress        Объект нового адреса.
@@ -31,8 +31,7 @@ public interface SupplierService {
      *                          Старый адрес удаляется из базы данных адресов, а новый - добавляется.
      * @return Успешность выполнения операции.
      */
-    boolean changeAddress(final AddressService addressService,
-                          final UUID supplierId, final AddressDto newAddress);
+    boolean changeAddress(final UUID supplierId, final AddressDto newAddress);
 
     /**
      * Удаление поставщика по уникальному идентификатору.
@@ -1,11 +1,14 @@
 package ru.shop.domain.service.supplier;
 
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.shop.dao.model.SupplierEntity;
 import ru.shop.dao.repository.SupplierRepository;
 import ru.shop.domain.model.AddressDto;
 import ru.shop.domain.model.SupplierDto;
-import ru.shop.domain.service.address.AddressService;
+import ru.shop.domain.service.address.AddressServiceImpl;
 import ru.shop.mapper.SupplierMapper;
 
 import java.util.List;
@@ -18,10 +21,12 @@ public class SupplierServiceImpl implements SupplierService {
 
     private final SupplierRepository repository;
     private final SupplierMapper mapper;
+    private final TransactionTemplate writeTransaction;
 
-    public SupplierServiceImpl(SupplierRepository supplierRepository) {
+    public SupplierServiceImpl(SupplierRepository supplierRepository, PlatformTransactionManager transactionManager) {
         this.repository = supplierRepository;
         this.mapper = new SupplierMapper();
+        this.writeTransaction = new TransactionTemplate(transactionManager);
     }
 
     @Override
@@ -35,19 +40,24 @@ public class SupplierServiceImpl implements SupplierService {
     }
 
     @Override
-    public boolean changeAddress(final AddressService addressService,
-                                 final UUID supplierId, final AddressDto newAddress) {
-        Optional<SupplierEntity> supplierOpt = repository.findById(supplierId);
-        if (supplierOpt.isPresent()) {
-            if (addressService.add(newAddress)) {
-                SupplierEntity supplier = supplierOpt.get();
-                addressService.deleteById(supplier.getAddressId());
-                supplier.setAddressId(newAddress.getId());
-                repository.save(supplier);
+    public boolean changeAddress(final UUID supplierId, final AddressDto newAddress) {
+        if (!AddressServiceImpl.isValidDto(newAddress)) {
+            return false;
+        }
+        try {
+            // Ошибка вставки прерывает транзакцию PostgreSQL, поэтому перехватывается вне нее
+            return Boolean.TRUE.equals(writeTransaction.execute(status -> {
+                Optional<UUID> oldAddressId = repository.lockAddressId(supplierId);
+                if (oldAddressId.isEmpty()) {
+                    return false;
+                }
+                repository.replaceAddress(supplierId, oldAddressId.get(), newAddress.getId(), newAddress.getCountry(),
+                        newAddress.getCity(), newAddress.getStreet());
                 return true;
-            }
+            }));
+        } catch (DataIntegrityViolationException e) {
+            return false;  // адрес с таким id уже существует
         }
-        return false;
     }
 
     @Override
@@ -0,0 +1,67 @@
+package ru.shop.domain.service.upload;
+
+import org.springframework.stereotype.Service;
+import ru.shop.domain.model.UploadSessionDto;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.UUID;
+
+@Service
+public interface ImageUploadService {
+
+    /**
+     * Создание сессии загрузки изображения по частям.
+     *
+     * @return Состояние новой сессии.
+     * @throws IOException Ошибка создания временного файла.
+     */
+    UploadSessionDto create() throws IOException;
+
+    /**
+     * Получение состояния сессии, например для продолжения загрузки после обрыва связи.
+     *
+     * @param uploadId Уникальный идентификатор сессии.
+     * @return Состояние сессии или null, если сессия не найдена.
+     */
+    UploadSessionDto getById(final UUID uploadId);
+
+    /**
+     * Добавление очередной части изображения.
+     * Повторная отправка последней принятой части заменяет ее, поэтому повтор после обрыва безопасен.
+     *
+     * @param uploadId  Уникальный идентификатор сессии.
+     * @param number    Номер части, нумерация с нуля.
+     * @param content   Поток байт части.
+     * @return Состояние сессии или null, если сессия не найдена.
+     * @throws IOException Ошибка чтения потока или записи файла.
+     * @throws IllegalStateException Номер части не следующий и не последний принятый,
+     *                               или сессия занята другим запросом.
+     */
+    UploadSessionDto appendChunk(final UUID uploadId, final int number,
+                                 final InputStream content) throws IOException, IllegalStateException;
+
+    /**
+     * Завершение сессии и сохранение изображения.
+     *
+     * @param uploadId      Уникальный идентификатор сессии.
+     * @param imageId       Уникальный идентификатор изображения.
+     *                      Если изображение существует, его содержимое заменяется.
+     * @param expectedHash  Ожидаемый SHA-256 содержимого в hex (опционально).
+     * @return Успешность операции. Если сессия не найдена, возвращается false.
+     * @throws IOException Ошибка записи в хранилище.
+     * @throws IllegalArgumentException Хэш содержимого не совпал с ожидаемым, сессия удаляется.
+     * @throws IllegalStateException Сессия занята другим запросом.
+     */
+    boolean commit(final UUID uploadId, final UUID imageId,
+                   final String expectedHash) throws IOException, IllegalArgumentException, IllegalStateException;
+
+    /**
+     * Отмена сессии с удалением принятых частей.
+     *
+     * @param uploadId Уникальный идентификатор сессии.
+     * @return Успешность операции. Если сессия не найдена, возвращается false.
+     */
+    boolean deleteById(final UUID uploadId);
+
+}
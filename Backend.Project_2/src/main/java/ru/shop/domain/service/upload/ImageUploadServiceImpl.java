@@ -0,0 +1,147 @@
+package ru.shop.domain.service.upload;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.shop.domain.model.UploadSessionDto;
+import ru.shop.domain.service.image.ImageService;
+import ru.shop.domain.service.image.storage.ImageStorage;
+import ru.shop.domain.service.image.storage.SpooledContent;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+@Service
+public class ImageUploadServiceImpl implements ImageUploadService {
+
+    private final ImageService imageService;
+    private final Path directory;
+    private final Duration expireAfter;
+    private final Map<UUID, UploadSession> sessions = new ConcurrentHashMap<>();
+
+    // Файлы сессий лежат в каталоге временных файлов хранилища, чтобы завершение не копировало данные
+    @Autowired
+    public ImageUploadServiceImpl(ImageService imageService, ImageStorage imageStorage,
+                                  @Value("${shop.images.uploads.expire-after:1h}") Duration expireAfter) {
+        this.imageService = imageService;
+        this.directory = imageStorage.spoolDirectory();
+        this.expireAfter = expireAfter;
+    }
+
+    @Override
+    public UploadSessionDto create() throws IOException {
+        UUID id = UUID.randomUUID();
+        UploadSession session = new UploadSession(id, Files.createTempFile(directory, "session-", ".part"));
+        sessions.put(id, session);
+        return session.toDto();
+    }
+
+    @Override
+    public UploadSessionDto getById(final UUID uploadId) {
+        UploadSession session = sessions.get(uploadId);
+        return session == null ? null : session.toDto();
+    }
+
+    @Override
+    public UploadSessionDto appendChunk(final UUID uploadId, final int number,
+                                        final InputStream content) throws IOException {
+        UploadSession session = sessions.get(uploadId);
+        if (session == null) {
+            return null;
+        }
+        lock(session);
+        try {
+            session.append(number, content);
+            return session.toDto();
+        } finally {
+            session.lock().unlock();
+        }
+    }
+
+    @Override
+    public boolean commit(final UUID uploadId, final UUID imageId,
+                          final String expectedHash) throws IOException {
+        UploadSession session = sessions.get(uploadId);
+        if (session == null) {
+            return false;
+        }
+        lock(session);
+        try {
+            if (!sessions.remove(uploadId, session)) {
+                return false;  // сессия отменена или истекла, пока ожидала блокировку
+            }
+            SpooledContent content = session.complete();
+            if (expectedHash != null && !expectedHash.equalsIgnoreCase(content.hash())) {
+                content.delete();
+                throw new IllegalArgumentException("SHA-256 содержимого не совпадает с ожидаемым");
+            }
+            return imageService.add(content, imageId);
+        } finally {
+            session.lock().unlock();
+        }
+    }
+
+    @Override
+    public boolean deleteById(final UUID uploadId) {
+        UploadSession session = sessions.remove(uploadId);
+        if (session == null) {
+            return false;
+        }
+        session.lock().lock();  // дождаться записи части, если она идет
+        try {
+            Files.deleteIfExists(session.file());
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            session.lock().unlock();
+        }
+    }
+
+    // Удаляет брошенные сессии и файлы сессий, оставшиеся после перезапуска приложения
+    @Scheduled(fixedDelayString = "${shop.images.uploads.cleanup-delay:60000}")
+    public void removeExpired() throws IOException {
+        Instant threshold = Instant.now().minus(expireAfter);
+        for (UploadSession session : sessions.values()) {
+            if (session.touchedAt().isBefore(threshold) && session.lock().tryLock()) {
+                try {
+                    if (sessions.remove(session.id(), session)) {
+                        Files.deleteIfExists(session.file());
+                    }
+                } finally {
+                    session.lock().unlock();
+                }
+            }
+        }
+        Set<Path> live = sessions.values().stream()
+                .map(UploadSession::file)
+                .collect(Collectors.toSet());
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "session-*.part")) {
+            for (Path file : files) {
+                if (!live.contains(file)
+                        && Files.getLastModifiedTime(file).toInstant().isBefore(threshold)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    private static void lock(final UploadSession session) {
+        if (!session.lock().tryLock()) {
+            throw new IllegalStateException("Сессия загрузки занята другим запросом");
+        }
+    }
+
+}
@@ -0,0 +1,102 @@
+package ru.shop.domain.service.upload;
+
+import ru.shop.domain.model.UploadSessionDto;
+import ru.shop.domain.service.image.storage.SpooledContent;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Сессия загрузки изображения по частям.
+ * Части дописываются во временный файл, хэш считается по мере поступления.
+ * Состояние хэша до последней части сохраняется, чтобы ее можно было прислать повторно.
+ * Методы вызываются под {@link #lock()}.
+ */
+class UploadSession {
+
+    private final UUID id;
+    private final Path file;
+    private final ReentrantLock lock = new ReentrantLock();
+    private MessageDigest digest = SpooledContent.sha256();
+    private MessageDigest previousDigest;  // состояние до последней принятой части
+    private long size;
+    private long previousSize;
+    private int nextChunk;
+    private volatile Instant touchedAt = Instant.now();
+
+    UploadSession(final UUID id, final Path file) {
+        this.id = id;
+        this.file = file;
+    }
+
+    UUID id() {
+        return id;
+    }
+
+    Path file() {
+        return file;
+    }
+
+    ReentrantLock lock() {
+        return lock;
+    }
+
+    Instant touchedAt() {
+        return touchedAt;
+    }
+
+    UploadSessionDto toDto() {
+        return new UploadSessionDto(id, nextChunk, size);
+    }
+
+    void append(final int number, final InputStream content) throws IOException {
+        if (previousDigest != null && number == nextChunk - 1) {
+            // повтор последней части: откат к состоянию до нее
+            digest = copy(previousDigest);
+            size = previousSize;
+            nextChunk = number;
+            previousDigest = null;
+        } else if (number != nextChunk) {
+            throw new IllegalStateException("Ожидается часть " + nextChunk);
+        }
+        touchedAt = Instant.now();
+        MessageDigest digestBefore = copy(digest);
+        long sizeBefore = size;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(size);  // остаток оборванной записи отбрасывается
+            channel.position(size);
+            size += new DigestInputStream(content, digest).transferTo(Channels.newOutputStream(channel));
+        } catch (IOException | RuntimeException e) {
+            digest = digestBefore;
+            size = sizeBefore;
+            throw e;
+        }
+        previousDigest = digestBefore;
+        previousSize = sizeBefore;
+        nextChunk++;
+        touchedAt = Instant.now();
+    }
+
+    SpooledContent complete() {
+        return new SpooledContent(file, size, HexFormat.of().formatHex(digest.digest()));
+    }
+
+    private static MessageDigest copy(final MessageDigest digest) {
+        try {
+            return (MessageDigest) digest.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);  // реализации SHA-256 в JDK поддерживают клонирование
+        }
+    }
+
+}
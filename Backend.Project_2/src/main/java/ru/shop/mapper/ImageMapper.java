@@ -12,7 +12,8 @@ public class ImageMapper {
             return null;
         }
         dto.setId(entity.getId());
-        dto.setBytes(entity.getBytes());
+        dto.setSize(entity.getSize());
+        dto.setContentHash(entity.getContentHash());
         return dto;
     }
 
@@ -21,7 +22,8 @@ public class ImageMapper {
             return null;
         }
         entity.setId(dto.getId());
-        entity.setBytes(dto.getBytes());
+        entity.setSize(dto.getSize());
+        entity.setContentHash(dto.getContentHash());
         return entity;
     }
 }
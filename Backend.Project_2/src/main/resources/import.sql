@@ -0,0 +1,7 @@
+-- Выполняется Hibernate после создания схемы (spring.jpa.hibernate.ddl-auto=create), по одному оператору в строке
+-- Триграммный индекс GiST: LIKE '%...%', оператор сходства % и сортировка по расстоянию <-> для нечеткого поиска клиентов
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX IF NOT EXISTS client_full_name_trgm_idx ON client USING gist ((surname_search || ' ' || name_search) gist_trgm_ops);
+-- Частичные индексы для фильтра inStock=true без категории и поставщика: @Index не задает условие WHERE
+CREATE INDEX IF NOT EXISTS product_in_stock_id_idx ON product (id) WHERE available_stock > 0;
+CREATE INDEX IF NOT EXISTS product_in_stock_price_idx ON product (price, id) WHERE available_stock > 0;
@@ -0,0 +1,43 @@
+package ru.shop;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Контекст приложения без веб-сервера поверх PostgreSQL, запущенного в процессе тестов.
+ * База данных одна на все тестовые классы, а контекст с одинаковыми настройками Spring переиспользует,
+ * поэтому тесты создают свои строки со случайными id и не рассчитывают на пустые таблицы.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+public abstract class EmbeddedPostgresTest {
+
+    private static final EmbeddedPostgres POSTGRES;
+    private static final Path DATA_DIRECTORY;
+
+    static {
+        try {
+            POSTGRES = EmbeddedPostgres.start();
+            DATA_DIRECTORY = Files.createTempDirectory("shop-test");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @DynamicPropertySource
+    static void embeddedPostgres(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url",
+                () -> POSTGRES.getJdbcUrl("postgres", "postgres") + "&reWriteBatchedInserts=true");
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "");
+        registry.add("shop.products.hot.journal", () -> DATA_DIRECTORY.resolve("stock-journal").toString());
+        registry.add("shop.images.storage.root", () -> DATA_DIRECTORY.resolve("images").toString());
+    }
+
+}
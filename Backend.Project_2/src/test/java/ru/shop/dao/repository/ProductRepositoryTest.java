@@ -0,0 +1,87 @@
+package ru.shop.dao.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import ru.shop.EmbeddedPostgresTest;
+import ru.shop.dao.model.ProductEntity;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProductRepositoryTest extends EmbeddedPostgresTest {
+
+    private static final int STOCK = 100;
+    private static final int THREADS = 16;
+    private static final int ATTEMPTS_PER_THREAD = 20;
+
+    @Autowired
+    private ProductRepository repository;
+
+    @Test
+    void concurrentReductionsSellExactlyTheStock() throws Exception {
+        UUID id = repository.save(product(STOCK)).getId();
+
+        // Покупателей больше, чем единиц товара: каждая единица продается ровно один раз
+        CountDownLatch start = new CountDownLatch(1);
+        Callable<Integer> buyer = () -> {
+            start.await();
+            int bought = 0;
+            for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                if (repository.reduceAvailableStock(id, 1).isPresent()) {
+                    bought++;
+                }
+            }
+            return bought;
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Integer>> buyers = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                buyers.add(executor.submit(buyer));
+            }
+            start.countDown();
+            int sold = 0;
+            for (Future<Integer> future : buyers) {
+                sold += future.get(1, TimeUnit.MINUTES);
+            }
+            assertEquals(STOCK, sold);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(0, repository.findById(id).orElseThrow().getAvailableStock());
+    }
+
+    @Test
+    void reductionAboveStockLeavesRowUnchanged() {
+        UUID id = repository.save(product(5)).getId();
+
+        assertTrue(repository.reduceAvailableStock(id, 6).isEmpty());
+        assertEquals(5, repository.findById(id).orElseThrow().getAvailableStock());
+        assertEquals(0, repository.reduceAvailableStock(id, 5).orElseThrow().getAvailableStock());
+    }
+
+    private static ProductEntity product(final int stock) {
+        ProductEntity product = new ProductEntity();
+        product.setId(UUID.randomUUID());
+        product.setName("Товар");
+        product.setCategory("Тест");
+        product.setPrice(new BigDecimal("100.00"));
+        product.setAvailableStock(stock);
+        product.setLastUpdateDate(LocalDate.now());
+        product.setSupplierId(UUID.randomUUID());
+        return product;
+    }
+
+}
@@ -0,0 +1,143 @@
+package ru.shop.domain.service.address;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import ru.shop.EmbeddedPostgresTest;
+import ru.shop.dao.model.AddressEntity;
+import ru.shop.dao.repository.AddressRepository;
+import ru.shop.domain.model.AddressDto;
+import ru.shop.domain.model.ClientDto;
+import ru.shop.domain.model.SupplierDto;
+import ru.shop.domain.service.client.ClientService;
+import ru.shop.domain.service.supplier.SupplierService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiPredicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Параллельные замены адреса одного владельца: после всех замен из созданных адресов
+ * остается ровно один — тот, на который ссылается владелец.
+ */
+class AddressChangeTest extends EmbeddedPostgresTest {
+
+    private static final int THREADS = 8;
+    private static final int CHANGES_PER_THREAD = 25;
+
+    @Autowired
+    private AddressService addressService;
+
+    @Autowired
+    private ClientService clientService;
+
+    @Autowired
+    private SupplierService supplierService;
+
+    @Autowired
+    private AddressRepository addressRepository;
+
+    @Test
+    void concurrentClientAddressChangesLeaveNoOrphans() throws Exception {
+        AddressDto initial = address();
+        assertTrue(addressService.add(initial));
+        ClientDto client = new ClientDto();
+        client.setId(UUID.randomUUID());
+        client.setName("Иван");
+        client.setSurname("Иванов");
+        client.setGender("male");
+        client.setBirthday(LocalDate.of(1990, 1, 1));
+        client.setRegistrationDate(LocalDate.now());
+        client.setAddressId(initial.getId());
+        assertTrue(clientService.add(client));
+
+        Set<UUID> created = changeConcurrently(client.getId(), clientService::changeAddress);
+        created.add(initial.getId());
+
+        assertOnlyAddressLeft(created, clientService.getById(client.getId()).getAddressId());
+    }
+
+    @Test
+    void concurrentSupplierAddressChangesLeaveNoOrphans() throws Exception {
+        AddressDto initial = address();
+        assertTrue(addressService.add(initial));
+        SupplierDto supplier = new SupplierDto();
+        supplier.setId(UUID.randomUUID());
+        supplier.setName("Поставщик");
+        supplier.setPhoneNumber("+70000000000");
+        supplier.setAddressId(initial.getId());
+        assertTrue(supplierService.add(supplier));
+
+        Set<UUID> created = changeConcurrently(supplier.getId(), supplierService::changeAddress);
+        created.add(initial.getId());
+
+        assertOnlyAddressLeft(created, supplierService.getById(supplier.getId()).getAddressId());
+    }
+
+    @Test
+    void changeForUnknownOwnerInsertsNothing() {
+        AddressDto address = address();
+
+        assertFalse(clientService.changeAddress(UUID.randomUUID(), address));
+        assertFalse(supplierService.changeAddress(UUID.randomUUID(), address));
+        assertFalse(addressRepository.existsById(address.getId()));
+    }
+
+    private Set<UUID> changeConcurrently(final UUID ownerId, final BiPredicate<UUID, AddressDto> change)
+            throws Exception {
+        Set<UUID> created = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> changes = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                changes.add(executor.submit(() -> {
+                    start.await();
+                    for (int j = 0; j < CHANGES_PER_THREAD; j++) {
+                        AddressDto address = address();
+                        created.add(address.getId());
+                        assertTrue(change.test(ownerId, address));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : changes) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return created;
+    }
+
+    private void assertOnlyAddressLeft(final Set<UUID> created, final UUID current) {
+        List<UUID> left = new ArrayList<>();
+        for (AddressEntity address : addressRepository.findAllById(created)) {
+            left.add(address.getId());
+        }
+        assertEquals(List.of(current), left);
+    }
+
+    private static AddressDto address() {
+        AddressDto address = new AddressDto();
+        address.setId(UUID.randomUUID());
+        address.setCountry("Россия");
+        address.setCity("Москва");
+        address.setStreet("Тверская");
+        return address;
+    }
+
+}
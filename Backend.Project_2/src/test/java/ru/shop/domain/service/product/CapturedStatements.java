@@ -0,0 +1,36 @@
+package ru.shop.domain.service.product;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * SQL, подготовленный Hibernate, для проверки планов выполнения.
+ * Подключается свойством hibernate.session_factory.statement_inspector.
+ */
+public class CapturedStatements implements StatementInspector {
+
+    private static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+    @Override
+    public String inspect(final String sql) {
+        STATEMENTS.add(sql);
+        return sql;
+    }
+
+    static void clear() {
+        STATEMENTS.clear();
+    }
+
+    // Последний запрос к таблице, начинающийся с prefix
+    static String last(final String prefix) {
+        for (int i = STATEMENTS.size() - 1; i >= 0; i--) {
+            if (STATEMENTS.get(i).startsWith(prefix)) {
+                return STATEMENTS.get(i);
+            }
+        }
+        throw new IllegalStateException("Нет запроса " + prefix + " среди " + STATEMENTS);
+    }
+
+}
@@ -0,0 +1,271 @@
+package ru.shop.domain.service.product;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import ru.shop.EmbeddedPostgresTest;
+import ru.shop.domain.model.CursorPageDto;
+import ru.shop.domain.model.ProductDto;
+import ru.shop.domain.model.ProductFilter;
+import ru.shop.domain.model.ProductSort;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Планы запросов страниц товаров: каждая комбинация фильтра и порядка читает индекс из ProductEntity
+ * или частичный индекс товаров в наличии из import.sql
+ * в порядке страницы, без узла Sort, а вторая страница начинает сканирование с курсора.
+ * Проверяется SQL, который действительно сформировал Hibernate, с подставленными значениями параметров.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestPropertySource(properties =
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=ru.shop.domain.service.product.CapturedStatements")
+class ProductPageQueryPlanTest extends EmbeddedPostgresTest {
+
+    private static final int PRODUCTS = 50_000;
+    private static final int LIMIT = 20;
+    private static final String CATEGORY = "plan-category-7";
+    private static final BigDecimal MIN_PRICE = new BigDecimal("100.00");
+    private static final BigDecimal MAX_PRICE = new BigDecimal("900.00");
+
+    @Autowired
+    private ProductService service;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private UUID supplier;
+
+    // Данных достаточно, чтобы полный просмотр с сортировкой был заметно дороже обхода индекса
+    @BeforeAll
+    void seed() {
+        jdbcTemplate.update("INSERT INTO product (id, name, category, price, available_stock, "
+                + "last_update_date, supplier_id) "
+                + "SELECT gen_random_uuid(), 'plan-' || i, 'plan-category-' || (i % 50), (i % 997) + 0.99, i % 3, "
+                + "current_date, CAST(md5('plan-supplier-' || (i % 50)) AS uuid) "
+                + "FROM generate_series(1, ?) AS i", PRODUCTS);
+        jdbcTemplate.execute("ANALYZE product");
+        supplier = jdbcTemplate.queryForObject("SELECT CAST(md5('plan-supplier-7') AS uuid)", UUID.class);
+    }
+
+    @Test
+    void pagesByIdUseIndexes() {
+        assertOrderedByIndex(filter(null, null, ProductSort.ID), "product_pkey", false);
+        assertOrderedByIndex(filter(CATEGORY, null, ProductSort.ID), "product_category_id_idx", false);
+        assertOrderedByIndex(filter(null, supplier, ProductSort.ID), "product_supplier_id_idx", false);
+    }
+
+    @Test
+    void pagesByPriceUseIndexes() {
+        assertOrderedByIndex(filter(null, null, ProductSort.PRICE_ASC), "product_price_idx", false);
+        assertOrderedByIndex(filter(CATEGORY, null, ProductSort.PRICE_ASC), "product_category_price_idx", false);
+        assertOrderedByIndex(filter(null, supplier, ProductSort.PRICE_ASC), "product_supplier_price_idx", false);
+    }
+
+    @Test
+    void pagesByDescendingPriceScanIndexesBackward() {
+        assertOrderedByIndex(filter(null, null, ProductSort.PRICE_DESC), "product_price_idx", true);
+        assertOrderedByIndex(filter(CATEGORY, null, ProductSort.PRICE_DESC), "product_category_price_idx", true);
+        assertOrderedByIndex(filter(null, supplier, ProductSort.PRICE_DESC), "product_supplier_price_idx", true);
+    }
+
+    @Test
+    void pagesInPriceRangeUseIndexes() {
+        assertOrderedByIndex(filter(null, null, MIN_PRICE, MAX_PRICE, null, ProductSort.PRICE_ASC),
+                "product_price_idx", false);
+        assertOrderedByIndex(filter(null, null, MIN_PRICE, MAX_PRICE, null, ProductSort.PRICE_DESC),
+                "product_price_idx", true);
+        assertOrderedByIndex(filter(CATEGORY, null, MIN_PRICE, MAX_PRICE, null, ProductSort.PRICE_ASC),
+                "product_category_price_idx", false);
+        assertOrderedByIndex(filter(null, supplier, MIN_PRICE, MAX_PRICE, null, ProductSort.PRICE_DESC),
+                "product_supplier_price_idx", true);
+        // Широкий диапазон цен при порядке по id проверяется фильтром при обходе индекса id
+        assertOrderedByIndex(filter(null, null, MIN_PRICE, MAX_PRICE, null, ProductSort.ID),
+                "product_pkey", false);
+        assertOrderedByIndex(filter(CATEGORY, null, MIN_PRICE, MAX_PRICE, null, ProductSort.ID),
+                "product_category_id_idx", false);
+    }
+
+    @Test
+    void pagesInStockUsePartialIndexes() {
+        assertOrderedByIndex(filter(null, null, null, null, true, ProductSort.ID),
+                "product_in_stock_id_idx", false);
+        assertOrderedByIndex(filter(null, null, null, null, true, ProductSort.PRICE_ASC),
+                "product_in_stock_price_idx", false);
+        assertOrderedByIndex(filter(null, null, null, null, true, ProductSort.PRICE_DESC),
+                "product_in_stock_price_idx", true);
+        assertOrderedByIndex(filter(null, null, MIN_PRICE, MAX_PRICE, true, ProductSort.PRICE_ASC),
+                "product_in_stock_price_idx", false);
+        // С категорией или поставщиком наличие проверяется фильтром при обходе их индексов
+        assertOrderedByIndex(filter(CATEGORY, null, null, null, true, ProductSort.ID),
+                "product_category_id_idx", false);
+        assertOrderedByIndex(filter(null, supplier, null, null, true, ProductSort.PRICE_ASC),
+                "product_supplier_price_idx", false);
+    }
+
+    // Две страницы подряд совпадают с первыми строками того же порядка, посчитанного базой данных
+    @Test
+    void cursorPagesFollowSortOrder() {
+        for (ProductSort sort : ProductSort.values()) {
+            assertPagesFollowSortOrder(filter(null, null, sort), "TRUE");
+            assertPagesFollowSortOrder(filter(null, null, MIN_PRICE, MAX_PRICE, true, sort),
+                    "price BETWEEN " + MIN_PRICE + " AND " + MAX_PRICE + " AND available_stock > 0");
+        }
+    }
+
+    private void assertPagesFollowSortOrder(final ProductFilter filter, final String condition) {
+        ProductSort sort = filter.getSort();
+        CursorPageDto<ProductDto> first = service.getPage(filter, null, LIMIT);
+        CursorPageDto<ProductDto> second = service.getPage(filter, first.getNext(), LIMIT);
+        List<UUID> pages = new ArrayList<>();
+        first.getItems().forEach(product -> pages.add(product.getId()));
+        second.getItems().forEach(product -> pages.add(product.getId()));
+
+        String order = switch (sort) {
+            case ID -> "id";
+            case PRICE_ASC -> "price, id";
+            case PRICE_DESC -> "price DESC, id DESC";
+        };
+        List<UUID> expected = jdbcTemplate.queryForList(
+                "SELECT id FROM product WHERE " + condition + " ORDER BY " + order + " LIMIT ?",
+                UUID.class, 2 * LIMIT);
+        assertEquals(expected, pages, sort.name());
+    }
+
+    // Первая страница и страница после курсора: индекс нужного имени, направление обхода, без сортировки
+    private void assertOrderedByIndex(final ProductFilter filter, final String index, final boolean backward) {
+        CapturedStatements.clear();
+        CursorPageDto<ProductDto> first = service.getPage(filter, null, LIMIT);
+        assertNotNull(first.getNext());
+        assertPlan(CapturedStatements.last("select"), pageParameters(filter, null), index, backward);
+
+        ProductDto last = first.getItems().get(LIMIT - 1);
+        CapturedStatements.clear();
+        service.getPage(filter, first.getNext(), LIMIT);
+        assertPlan(CapturedStatements.last("select"), pageParameters(filter, last), index, backward);
+    }
+
+    private void assertPlan(final String sql, final List<Object> parameters, final String index,
+                            final boolean backward) {
+        JsonNode plan = explain(sql, parameters);
+        List<JsonNode> nodes = new ArrayList<>();
+        collect(plan, nodes);
+        String description = sql + "\n" + plan.toPrettyString();
+        assertFalse(nodes.stream().anyMatch(node -> node.path("Node Type").asText().contains("Sort")), description);
+        JsonNode scan = nodes.stream()
+                .filter(node -> index.equals(node.path("Index Name").asText()))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("Индекс " + index + " не используется:\n" + description));
+        assertEquals(backward ? "Backward" : "Forward", scan.path("Scan Direction").asText(), description);
+    }
+
+    // Параметры запроса страницы в порядке условий ProductSpecifications и лимит последним.
+    // Ноль условия наличия подставлен в текст запроса и параметром не является
+    private static List<Object> pageParameters(final ProductFilter filter, final ProductDto after) {
+        List<Object> parameters = new ArrayList<>();
+        if (filter.getCategory() != null) {
+            parameters.add(filter.getCategory());
+        }
+        if (filter.getMinPrice() != null) {
+            parameters.add(filter.getMinPrice());
+        }
+        if (filter.getMaxPrice() != null) {
+            parameters.add(filter.getMaxPrice());
+        }
+        if (filter.getSupplierId() != null) {
+            parameters.add(filter.getSupplierId());
+        }
+        if (after != null) {
+            if (filter.getSort() == ProductSort.ID) {
+                parameters.add(after.getId());
+            } else {
+                parameters.add(after.getPrice());
+                parameters.add(after.getPrice());
+                parameters.add(after.getId());
+            }
+        }
+        parameters.add(LIMIT + 1);
+        return parameters;
+    }
+
+    // Параметры JDBC подставляются через PREPARE, чтобы план строился по тому же тексту запроса
+    private JsonNode explain(final String sql, final List<Object> parameters) {
+        StringBuilder prepared = new StringBuilder();
+        int number = 0;
+        for (char c : sql.toCharArray()) {
+            if (c == '?') {
+                prepared.append('$').append(++number);
+            } else {
+                prepared.append(c);
+            }
+        }
+        assertEquals(parameters.size(), number, "Параметры запроса: " + sql);
+        String values = parameters.stream()
+                .map(value -> "'" + value + "'")
+                .collect(Collectors.joining(", "));
+        return jdbcTemplate.execute((ConnectionCallback<JsonNode>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("PREPARE page_query AS " + prepared);
+                try (ResultSet result = statement.executeQuery(
+                        "EXPLAIN (FORMAT JSON) EXECUTE page_query(" + values + ")")) {
+                    result.next();
+                    return readJson(result.getString(1)).get(0).get("Plan");
+                } finally {
+                    statement.execute("DEALLOCATE page_query");
+                }
+            }
+        });
+    }
+
+    private JsonNode readJson(final String json) {
+        try {
+            return objectMapper.readTree(json);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void collect(final JsonNode node, final List<JsonNode> nodes) {
+        nodes.add(node);
+        for (JsonNode child : node.path("Plans")) {
+            collect(child, nodes);
+        }
+    }
+
+    private static ProductFilter filter(final String category, final UUID supplierId, final ProductSort sort) {
+        return filter(category, supplierId, null, null, null, sort);
+    }
+
+    private static ProductFilter filter(final String category, final UUID supplierId, final BigDecimal minPrice,
+                                        final BigDecimal maxPrice, final Boolean inStock, final ProductSort sort) {
+        ProductFilter filter = new ProductFilter();
+        filter.setCategory(category);
+        filter.setSupplierId(supplierId);
+        filter.setMinPrice(minPrice);
+        filter.setMaxPrice(maxPrice);
+        filter.setInStock(inStock);
+        filter.setSort(sort);
+        return filter;
+    }
+
+}
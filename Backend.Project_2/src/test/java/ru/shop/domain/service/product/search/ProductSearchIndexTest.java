@@ -0,0 +1,83 @@
+package ru.shop.domain.service.product.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Индекс создается без базы данных: build не вызывается, товары добавляются через put
+class ProductSearchIndexTest {
+
+    private static final int THREADS = 8;
+    private static final int PRODUCTS = 2_000;
+
+    @Test
+    void searchRanksExactBeforePrefixAndShorterFirst() {
+        ProductSearchIndex index = new ProductSearchIndex(null, null);
+        UUID exactShort = UUID.randomUUID();
+        UUID exactLong = UUID.randomUUID();
+        UUID prefix = UUID.randomUUID();
+        index.put(prefix, "Чайник");
+        index.put(exactLong, "Чай черный листовой");
+        index.put(exactShort, "Чай");
+        index.put(UUID.randomUUID(), "Кофе");
+
+        assertEquals(List.of(exactShort, exactLong, prefix), index.search("чай", 0, 10));
+        assertEquals(List.of(exactLong), index.search("чай", 1, 1));
+        assertEquals(List.of(prefix), index.search("ЧАЙ", 2, 5));
+        assertEquals(List.of(), index.search("чай", 3, 5));
+    }
+
+    @Test
+    void concurrentPutAndRemoveKeepSharedWord() throws Exception {
+        ProductSearchIndex index = new ProductSearchIndex(null, null);
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < PRODUCTS; i++) {
+            ids.add(UUID.randomUUID());
+        }
+
+        // Все товары делят слово «товар»: потоки одновременно добавляют его и удаляют каждый второй товар,
+        // поэтому множество слова многократно пустеет и создается заново
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                writers.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = thread; i < PRODUCTS; i += THREADS) {
+                        index.put(ids.get(i), "Товар " + i);
+                        if (i % 2 == 1) {
+                            index.remove(ids.get(i));
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> writer : writers) {
+                writer.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Set<UUID> expected = new HashSet<>();
+        for (int i = 0; i < PRODUCTS; i += 2) {
+            expected.add(ids.get(i));
+        }
+        assertEquals(expected, new HashSet<>(index.search("товар", 0, PRODUCTS)));
+    }
+
+}
@@ -0,0 +1,192 @@
+package ru.shop.domain.service.product.stock;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.shop.EmbeddedPostgresTest;
+import ru.shop.dao.model.ProductEntity;
+import ru.shop.dao.repository.ProductRepository;
+import ru.shop.dao.repository.StockJournalRepository;
+import ru.shop.domain.model.ProductDto;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Горячие остатки поверх настоящей таблицы product. Реестр создается тестом, а не контекстом,
+ * чтобы его можно было «уронить», не вызывая stop, и запустить заново на том же журнале.
+ */
+class HotStockRegistryTest extends EmbeddedPostgresTest {
+
+    private static final int STOCK = 1_000;
+    private static final int THREADS = 8;
+
+    @Autowired
+    private ProductRepository repository;
+
+    @Autowired
+    private StockJournalRepository checkpoints;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @TempDir
+    Path journal;
+
+    @Test
+    void concurrentReservationsSellExactlyTheStock() throws Exception {
+        UUID id = repository.save(product(STOCK)).getId();
+        HotStockRegistry registry = registry(id);
+        registry.start();
+
+        CountDownLatch start = new CountDownLatch(1);
+        Callable<Integer> buyer = () -> {
+            start.await();
+            int bought = 0;
+            while (registry.tryReserve(id, 1)) {
+                bought++;
+            }
+            return bought;
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        int sold = 0;
+        try {
+            List<Future<Integer>> buyers = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                buyers.add(executor.submit(buyer));
+            }
+            start.countDown();
+            for (Future<Integer> future : buyers) {
+                sold += future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        registry.stop();
+
+        assertEquals(STOCK, sold);
+        assertEquals(0, repository.findById(id).orElseThrow().getAvailableStock());
+    }
+
+    @Test
+    void restartAfterCrashAppliesUnflushedJournal() throws Exception {
+        UUID id = repository.save(product(STOCK)).getId();
+        HotStockRegistry crashed = registry(id);
+        crashed.start();
+        for (int i = 0; i < 10; i++) {
+            assertTrue(crashed.tryReserve(id, 3));
+        }
+        crashed.flush();  // 30 единиц уже в базе данных, их сегмент не должен примениться повторно
+        for (int i = 0; i < 5; i++) {
+            assertTrue(crashed.tryReserve(id, 2));
+        }
+        crashed.release(id, 4);
+        assertEquals(STOCK - 30, repository.findById(id).orElseThrow().getAvailableStock());
+
+        // stop не вызывается: последние списания есть только в журнале
+        HotStockRegistry restarted = registry(id);
+        restarted.start();
+
+        int expected = STOCK - 30 - 10 + 4;
+        assertEquals(expected, repository.findById(id).orElseThrow().getAvailableStock());
+        assertEquals(expected, restarted.overlay(dto(id)).getAvailableStock());
+        restarted.stop();
+    }
+
+    @Test
+    void savedProductStartsFromNewStock() throws Exception {
+        UUID id = repository.save(product(STOCK)).getId();
+        HotStockRegistry registry = registry(id);
+        registry.start();
+        assertTrue(registry.tryReserve(id, 100));
+
+        // Так перезапись товара проходит через ProductServiceImpl.add
+        registry.unregister(id);
+        assertFalse(registry.isHot(id));
+        assertEquals(STOCK - 100, repository.findById(id).orElseThrow().getAvailableStock());
+        ProductEntity replaced = product(50);
+        replaced.setId(id);
+        repository.save(replaced);
+        registry.register(id, 50);
+        registry.flush();
+
+        assertTrue(registry.isHot(id));
+        assertEquals(50, registry.overlay(dto(id)).getAvailableStock());
+        assertEquals(50, repository.findById(id).orElseThrow().getAvailableStock());
+        assertFalse(registry.tryReserve(id, 51));
+        registry.stop();
+    }
+
+    @Test
+    void unregisterFailsWhenDeltasCannotBeWritten() throws Exception {
+        UUID id = repository.save(product(STOCK)).getId();
+        AtomicBoolean databaseDown = new AtomicBoolean();
+        TransactionTemplate failing = new TransactionTemplate(transactionTemplate.getTransactionManager()) {
+            @Override
+            public <T> T execute(final TransactionCallback<T> action) throws TransactionException {
+                if (databaseDown.get()) {
+                    throw new IllegalStateException("База данных недоступна");
+                }
+                return super.execute(action);
+            }
+        };
+        HotStockRegistry registry = new HotStockRegistry(repository, checkpoints, failing,
+                new UUID[]{id}, 4, journal);
+        registry.start();
+        assertTrue(registry.tryReserve(id, 100));
+
+        // Перезапись строки должна прерваться, иначе списание позже применится к новому остатку
+        databaseDown.set(true);
+        assertThrows(IllegalStateException.class, () -> registry.unregister(id));
+        assertFalse(registry.tryReserve(id, 1));
+        assertEquals(STOCK, repository.findById(id).orElseThrow().getAvailableStock());
+
+        databaseDown.set(false);
+        registry.flush();
+        assertEquals(STOCK - 100, repository.findById(id).orElseThrow().getAvailableStock());
+        registry.stop();
+    }
+
+    private HotStockRegistry registry(final UUID hotId) {
+        return new HotStockRegistry(repository, checkpoints, transactionTemplate,
+                new UUID[]{hotId}, 4, journal);
+    }
+
+    private static ProductDto dto(final UUID id) {
+        ProductDto product = new ProductDto();
+        product.setId(id);
+        return product;
+    }
+
+    private static ProductEntity product(final int stock) {
+        ProductEntity product = new ProductEntity();
+        product.setId(UUID.randomUUID());
+        product.setName("Горячий товар");
+        product.setCategory("Тест");
+        product.setPrice(new BigDecimal("100.00"));
+        product.setAvailableStock(stock);
+        product.setLastUpdateDate(LocalDate.now());
+        product.setSupplierId(UUID.randomUUID());
+        return product;
+    }
+
+}
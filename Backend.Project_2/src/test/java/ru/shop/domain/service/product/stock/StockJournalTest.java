@@ -0,0 +1,146 @@
+package ru.shop.domain.service.product.stock;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StockJournalTest {
+
+    private static final UUID FIRST = UUID.randomUUID();
+    private static final UUID SECOND = UUID.randomUUID();
+    private static final int THREADS = 8;
+    private static final int APPENDS = 2_000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void sealGroupsDeltasBySegment() throws Exception {
+        try (StockJournal journal = new StockJournal(directory, 5)) {
+            assertNull(journal.seal());  // пустой сегмент не закрывается
+
+            journal.append(FIRST, 3);
+            journal.append(FIRST, -1);
+            journal.append(SECOND, 4);
+            StockJournal.Segment sealed = journal.seal();
+
+            assertEquals(5, sealed.number());
+            assertEquals(Map.of(FIRST, 2L, SECOND, 4L), sealed.deltas());
+
+            journal.append(FIRST, 1);
+            assertEquals(6, journal.seal().number());
+        }
+    }
+
+    @Test
+    void concurrentAppendsAreWrittenInGroupsWithoutLoss() throws Exception {
+        StockJournal journal = new StockJournal(directory, 0);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                UUID id = i % 2 == 0 ? FIRST : SECOND;
+                writers.add(executor.submit(() -> {
+                    start.await();
+                    for (int j = 0; j < APPENDS; j++) {
+                        journal.append(id, 1);
+                        if (j % 500 == 0) {
+                            journal.seal();  // закрытие сегмента во время записи пакетов
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> writer : writers) {
+                writer.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // В памяти и в файлах каждого сегмента одни и те же списания
+        long total = THREADS / 2 * APPENDS;
+        List<StockJournal.Segment> recovered = StockJournal.recover(directory);
+        StockJournal.Segment last = journal.seal();
+        journal.close();
+        long first = 0;
+        long second = 0;
+        for (StockJournal.Segment segment : recovered) {
+            first += segment.deltas().getOrDefault(FIRST, 0L);
+            second += segment.deltas().getOrDefault(SECOND, 0L);
+        }
+        assertEquals(total, first);
+        assertEquals(total, second);
+        if (last != null) {
+            assertEquals(recovered.get(recovered.size() - 1).deltas(), last.deltas());
+        }
+    }
+
+    @Test
+    void fencedStockIsNotJournalled() throws Exception {
+        try (StockJournal journal = new StockJournal(directory, 0)) {
+            StripedStock stock = new StripedStock(10, 2);
+            assertTrue(journal.append(FIRST, 3, stock));
+            journal.fence(stock);
+            assertFalse(journal.append(FIRST, 2, stock));
+
+            assertEquals(Map.of(FIRST, 3L), journal.seal().deltas());
+            assertNull(journal.seal());
+        }
+    }
+
+    @Test
+    void recoverReadsSegmentsLeftByCrash() throws Exception {
+        // Процесс падает, не закрыв журнал: первый сегмент закрыт, второй еще пишется
+        StockJournal journal = new StockJournal(directory, 0);
+        journal.append(FIRST, 2);
+        journal.seal();
+        journal.append(FIRST, 5);
+        journal.append(SECOND, 1);
+        journal.append(FIRST, -3);
+
+        List<StockJournal.Segment> recovered = StockJournal.recover(directory);
+
+        assertEquals(2, recovered.size());
+        assertEquals(0, recovered.get(0).number());
+        assertEquals(Map.of(FIRST, 2L), recovered.get(0).deltas());
+        assertEquals(1, recovered.get(1).number());
+        assertEquals(Map.of(FIRST, 2L, SECOND, 1L), recovered.get(1).deltas());
+        journal.close();
+    }
+
+    @Test
+    void recoverDropsTornLastRecord() throws Exception {
+        Path segment;
+        try (StockJournal journal = new StockJournal(directory, 0)) {
+            journal.append(FIRST, 7);
+            segment = journal.seal().file();
+        }
+        // Запись оборвана падением посередине: есть id товара, но нет количества
+        Files.write(segment, new byte[Long.BYTES + 3], StandardOpenOption.APPEND);
+
+        List<StockJournal.Segment> recovered = StockJournal.recover(directory);
+
+        assertEquals(Map.of(FIRST, 7L), recovered.get(0).deltas());
+    }
+
+}
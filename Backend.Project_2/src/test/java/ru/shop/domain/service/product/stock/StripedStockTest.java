@@ -0,0 +1,101 @@
+package ru.shop.domain.service.product.stock;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StripedStockTest {
+
+    private static final int THREADS = 8;
+    private static final int STRIPES = 16;
+
+    @Test
+    void reservesAcrossStripes() {
+        StripedStock stock = new StripedStock(10, STRIPES);
+
+        // На 16 полос приходится 10 единиц: списание больше одной полосы собирает полосы вместе
+        assertTrue(stock.tryReserve(7));
+        assertEquals(3, stock.available());
+        assertFalse(stock.tryReserve(4));
+        assertEquals(3, stock.available());
+        assertTrue(stock.tryReserve(3));
+        assertEquals(0, stock.available());
+    }
+
+    @Test
+    void concurrentReservationsSellExactlyTheStock() throws Exception {
+        int available = 100_000;
+        StripedStock stock = new StripedStock(available, STRIPES);
+
+        // Без возвратов отказ точен: каждый поток списывает, пока не получит отказ
+        long sold = runConcurrently(() -> {
+            long reserved = 0;
+            while (stock.tryReserve(1)) {
+                reserved++;
+            }
+            return reserved;
+        });
+
+        assertEquals(available, sold);
+        assertEquals(0, stock.available());
+    }
+
+    @Test
+    void concurrentReservationsAndReleasesKeepTheSum() throws Exception {
+        int available = 1_000;
+        StripedStock stock = new StripedStock(available, STRIPES);
+
+        long kept = runConcurrently(() -> {
+            long reserved = 0;
+            for (int i = 0; i < 100_000; i++) {
+                int amount = ThreadLocalRandom.current().nextInt(1, 4);
+                if (reserved >= amount && ThreadLocalRandom.current().nextBoolean()) {
+                    stock.release(amount);
+                    reserved -= amount;
+                } else if (stock.tryReserve(amount)) {
+                    reserved += amount;
+                }
+            }
+            return reserved;
+        });
+
+        assertTrue(kept <= available);
+        assertEquals(available - kept, stock.available());
+    }
+
+    // Сумма результатов всех потоков, запущенных одновременно
+    private static long runConcurrently(final Callable<Long> task) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Long>> results = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+            long total = 0;
+            for (Future<Long> result : results) {
+                total += result.get(1, TimeUnit.MINUTES);
+            }
+            return total;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}